@@ -7,6 +7,7 @@ import moddy.resflow.analysis.ResourceFlowAnalyzer;
 import moddy.resflow.analysis.ResourceFlowData;
 import moddy.resflow.overlay.ResourceFlowTracker;
 import moddy.resflow.overlay.ResourceStorageOverlay;
+import moddy.resflow.ui.FilterContext;
 import moddy.resflow.ui.GameUiApi;
 import moddy.resflow.ui.HorizontalResourcePanel;
 import moddy.resflow.ui.OverlayPanelInterrupter;
@@ -225,8 +226,15 @@ final class InstanceScript implements SCRIPT.SCRIPT_INSTANCE {
             panelManager.setOverlayActive(isAnyOverlayActive());
         }
 
+        // Panel meters read cached fill levels; refresh them only while the panel can be shown
+        if (isAnyOverlayActive() && SETT.ENTITIES() != null) {
+            HorizontalResourcePanel.meters.update(ds);
+        }
+
         // Update both overlays to refresh their caches
         if (SETT.ENTITIES() != null) {
+            // One shared filter snapshot per frame for both overlays
+            FilterContext.refresh();
             storageOverlay.update(ds);
             flowTracker.update(ds);
         }
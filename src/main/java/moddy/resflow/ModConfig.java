@@ -21,6 +21,12 @@ public class ModConfig {
     public static double FLOW_TRACKER_PULSE_SPEED = 1.5;
     public static double FLOW_TRACKER_ARROW_ANIM_SPEED = 2.0;
     public static int FLOW_ICON_INTERVAL = 3;
+    public static int FLOW_PATH_BUDGET_US = 1000;             // Per-frame time budget for path requests (microseconds)
+    public static boolean FLOW_TRUNK_BUNDLING = true;         // Draw paths sharing long runs of tiles as one trunk
+    public static boolean FLOW_SAMPLED_PATHS = true;          // Draw routes haulers were sampled walking (pathfinder until enough samples)
+    public static int FLOW_LOD_MID_LIMIT = 200;               // Most important connections drawn at zoom 2
+    public static int FLOW_LOD_FAR_LIMIT = 50;                // Most important connections drawn at zoom 3 and the strategic map
+    public static int FLOW_MAX_TRACKED_FLOWS = 20000;         // Cap on remembered flows; least recently seen are evicted
 
     // ResourceFlowAnalyzer settings
     public static double FLOW_ANALYZER_UPDATE_INTERVAL = 5.0;
@@ -41,18 +47,27 @@ public class ModConfig {
 
     // ResourceStorageOverlay settings
     public static double STORAGE_OVERLAY_CACHE_UPDATE_INTERVAL = 1.0;
+    public static int STORAGE_DISTRICT_SIZE = 32;             // Grid cell (tiles) for grouping stockpiles at far zoom
 
     // UI settings
     public static double STATUS_MESSAGE_DURATION = 3.0;
 
     // Particle system settings
     public static boolean FLOW_PARTICLE_ENABLED = true;
-    public static double FLOW_PARTICLE_BASE_SPEED = 0.5;      // Base tiles per second (was 5.0, reduced by 10x)
-    public static double FLOW_PARTICLE_MAX_SPEED = 2.0;       // Max tiles per second (was 20.0, reduced by 10x)
+    public static double FLOW_PARTICLE_BASE_SPEED = 5.0;      // Base tiles per second (arc length along the path)
+    public static double FLOW_PARTICLE_MAX_SPEED = 20.0;      // Max tiles per second (arc length along the path)
     public static float FLOW_PARTICLE_BASE_SIZE = 1.0f;       // Base visual size
     public static float FLOW_PARTICLE_MAX_SIZE = 3.0f;        // Max visual size
     public static boolean FLOW_PARTICLE_USE_GLOW = true;      // Enable glow effect
 
+    /**
+     * Total particles shared by all visible connections, split by observed flow volume on each cache rebuild.
+     * The effective budget shrinks automatically while frame time is above FLOW_PARTICLE_TARGET_FRAME_MS.
+     */
+    public static int FLOW_PARTICLE_BUDGET = 500;
+    public static int FLOW_PARTICLE_MIN_PER_CONNECTION = 2;   // Floor so quiet routes still show something
+    public static double FLOW_PARTICLE_TARGET_FRAME_MS = 20.0; // Frame time above which the budget scales down
+
     public static void debug(String message) {
         if (DEBUG_LOGGING) {
             LOG.ln(message);
@@ -75,6 +90,12 @@ public class ModConfig {
                 FLOW_TRACKER_PULSE_SPEED = json.dTry("FLOW_TRACKER_PULSE_SPEED", 0.1, 10.0, FLOW_TRACKER_PULSE_SPEED);
                 FLOW_TRACKER_ARROW_ANIM_SPEED = json.dTry("FLOW_TRACKER_ARROW_ANIM_SPEED", 0.1, 10.0, FLOW_TRACKER_ARROW_ANIM_SPEED);
                 FLOW_ICON_INTERVAL = json.i("FLOW_ICON_INTERVAL", 1, 10, FLOW_ICON_INTERVAL);
+                FLOW_PATH_BUDGET_US = json.i("FLOW_PATH_BUDGET_US", 100, 20000, FLOW_PATH_BUDGET_US);
+                FLOW_TRUNK_BUNDLING = json.bool("FLOW_TRUNK_BUNDLING", FLOW_TRUNK_BUNDLING);
+                FLOW_SAMPLED_PATHS = json.bool("FLOW_SAMPLED_PATHS", FLOW_SAMPLED_PATHS);
+                FLOW_LOD_MID_LIMIT = json.i("FLOW_LOD_MID_LIMIT", 10, 100000, FLOW_LOD_MID_LIMIT);
+                FLOW_LOD_FAR_LIMIT = json.i("FLOW_LOD_FAR_LIMIT", 5, 100000, FLOW_LOD_FAR_LIMIT);
+                FLOW_MAX_TRACKED_FLOWS = json.i("FLOW_MAX_TRACKED_FLOWS", 1000, 1000000, FLOW_MAX_TRACKED_FLOWS);
 
                 FLOW_ANALYZER_UPDATE_INTERVAL = json.dTry("FLOW_ANALYZER_UPDATE_INTERVAL", 1.0, 300.0, FLOW_ANALYZER_UPDATE_INTERVAL);
 
@@ -83,6 +104,7 @@ public class ModConfig {
                 FLOW_DATA_HISTORY_MAX_SAMPLES = json.i("FLOW_DATA_HISTORY_MAX_SAMPLES", 10, 100000, FLOW_DATA_HISTORY_MAX_SAMPLES);
 
                 STORAGE_OVERLAY_CACHE_UPDATE_INTERVAL = json.dTry("STORAGE_OVERLAY_CACHE_UPDATE_INTERVAL", 0.1, 10.0, STORAGE_OVERLAY_CACHE_UPDATE_INTERVAL);
+                STORAGE_DISTRICT_SIZE = json.i("STORAGE_DISTRICT_SIZE", 8, 256, STORAGE_DISTRICT_SIZE);
 
                 STATUS_MESSAGE_DURATION = json.dTry("STATUS_MESSAGE_DURATION", 0.5, 20.0, STATUS_MESSAGE_DURATION);
 
@@ -92,6 +114,9 @@ public class ModConfig {
                 FLOW_PARTICLE_BASE_SIZE = (float) json.dTry("FLOW_PARTICLE_BASE_SIZE", 0.5, 10.0, FLOW_PARTICLE_BASE_SIZE);
                 FLOW_PARTICLE_MAX_SIZE = (float) json.dTry("FLOW_PARTICLE_MAX_SIZE", 1.0, 20.0, FLOW_PARTICLE_MAX_SIZE);
                 FLOW_PARTICLE_USE_GLOW = json.bool("FLOW_PARTICLE_USE_GLOW", FLOW_PARTICLE_USE_GLOW);
+                FLOW_PARTICLE_BUDGET = json.i("FLOW_PARTICLE_BUDGET", 0, 5000, FLOW_PARTICLE_BUDGET);
+                FLOW_PARTICLE_MIN_PER_CONNECTION = json.i("FLOW_PARTICLE_MIN_PER_CONNECTION", 0, 20, FLOW_PARTICLE_MIN_PER_CONNECTION);
+                FLOW_PARTICLE_TARGET_FRAME_MS = json.dTry("FLOW_PARTICLE_TARGET_FRAME_MS", 5.0, 100.0, FLOW_PARTICLE_TARGET_FRAME_MS);
 
                 LOG.ln("ResFlow: Configuration loaded from ResFlow.txt");
             } else {
@@ -117,6 +142,12 @@ public class ModConfig {
                 "FLOW_TRACKER_PULSE_SPEED: " + FLOW_TRACKER_PULSE_SPEED + ",\n" +
                 "FLOW_TRACKER_ARROW_ANIM_SPEED: " + FLOW_TRACKER_ARROW_ANIM_SPEED + ",\n" +
                 "FLOW_ICON_INTERVAL: " + FLOW_ICON_INTERVAL + ",\n" +
+                "FLOW_PATH_BUDGET_US: " + FLOW_PATH_BUDGET_US + ",\n" +
+                "FLOW_TRUNK_BUNDLING: " + FLOW_TRUNK_BUNDLING + ",\n" +
+                "FLOW_SAMPLED_PATHS: " + FLOW_SAMPLED_PATHS + ",\n" +
+                "FLOW_LOD_MID_LIMIT: " + FLOW_LOD_MID_LIMIT + ",\n" +
+                "FLOW_LOD_FAR_LIMIT: " + FLOW_LOD_FAR_LIMIT + ",\n" +
+                "FLOW_MAX_TRACKED_FLOWS: " + FLOW_MAX_TRACKED_FLOWS + ",\n" +
                 "\n" +
 
                 // Analyzer settings
@@ -131,6 +162,7 @@ public class ModConfig {
 
                 // Storage overlay settings
                 "STORAGE_OVERLAY_CACHE_UPDATE_INTERVAL: " + STORAGE_OVERLAY_CACHE_UPDATE_INTERVAL + ",\n" +
+                "STORAGE_DISTRICT_SIZE: " + STORAGE_DISTRICT_SIZE + ",\n" +
                 "\n" +
 
                 // UI settings
@@ -142,7 +174,10 @@ public class ModConfig {
                 "FLOW_PARTICLE_MAX_SPEED: " + FLOW_PARTICLE_MAX_SPEED + ",\n" +
                 "FLOW_PARTICLE_BASE_SIZE: " + FLOW_PARTICLE_BASE_SIZE + ",\n" +
                 "FLOW_PARTICLE_MAX_SIZE: " + FLOW_PARTICLE_MAX_SIZE + ",\n" +
-                "FLOW_PARTICLE_USE_GLOW: " + FLOW_PARTICLE_USE_GLOW + ",\n";
+                "FLOW_PARTICLE_USE_GLOW: " + FLOW_PARTICLE_USE_GLOW + ",\n" +
+                "FLOW_PARTICLE_BUDGET: " + FLOW_PARTICLE_BUDGET + ",\n" +
+                "FLOW_PARTICLE_MIN_PER_CONNECTION: " + FLOW_PARTICLE_MIN_PER_CONNECTION + ",\n" +
+                "FLOW_PARTICLE_TARGET_FRAME_MS: " + FLOW_PARTICLE_TARGET_FRAME_MS + ",\n";
 
             // Write to file
             java.io.FileWriter writer = new java.io.FileWriter(PATHS.CONFIG().init.get("ResFlow").toFile());
@@ -0,0 +1,97 @@
+package moddy.resflow.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Bounded queue of hauler events observed by {@link ResourceFlowAnalyzer#scanHaulers()}.
+ * The analyzer pushes one event when it first sees a hauler carrying a resource (pickup)
+ * and one when that hauler stops carrying it (completion). Consumers such as the flow
+ * tracker drain it to drive particles from real traffic instead of polling every connection.
+ * Storage is a primitive ring buffer, so pushing and draining allocate nothing.
+ * When full, the oldest events are overwritten - consumers only care about recent traffic.
+ * Completion events also carry the hauler's sampled trail, the one per-trip allocation.
+ */
+public final class HaulEventQueue {
+
+    public static final byte PICKUP = 0;
+    public static final byte COMPLETE = 1;
+
+    private static final int CAPACITY = 1024;
+
+    private final byte[] type = new byte[CAPACITY];
+    private final int[] resourceIndex = new int[CAPACITY];
+    private final int[] sourceRoom = new int[CAPACITY];
+    private final int[] destRoom = new int[CAPACITY];
+    private final float[] distance = new float[CAPACITY];
+    private final int[][] trail = new int[CAPACITY][];
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * @param type          {@link #PICKUP} or {@link #COMPLETE}
+     * @param resourceIndex RESOURCE.index() of the carried resource
+     * @param sourceRoom    Room instance index where the trip started, -1 if none
+     * @param destRoom      Room instance index the hauler is heading to, -1 if none
+     * @param distance      Straight-line trip distance in tiles
+     * @param trail         Tiles the hauler was sampled on, interleaved x, y, oldest first (null if none)
+     */
+    void push(byte type, int resourceIndex, int sourceRoom, int destRoom, float distance, int[] trail) {
+        int slot = (head + size) % CAPACITY;
+        if (size == CAPACITY) {
+            head = (head + 1) % CAPACITY;
+        } else {
+            size++;
+        }
+        this.type[slot] = type;
+        this.resourceIndex[slot] = resourceIndex;
+        this.sourceRoom[slot] = sourceRoom;
+        this.destRoom[slot] = destRoom;
+        this.distance[slot] = distance;
+        this.trail[slot] = trail;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Hand every queued event to the sink (oldest first) and empty the queue
+     *
+     * @return number of events drained
+     */
+    public int drain(Sink sink) {
+        int drained = size;
+        for (int k = 0; k < drained; k++) {
+            int i = (head + k) % CAPACITY;
+            sink.accept(type[i], resourceIndex[i], sourceRoom[i], destRoom[i], distance[i], trail[i], k, drained);
+            trail[i] = null;
+        }
+        head = 0;
+        size = 0;
+        return drained;
+    }
+
+    public void clear() {
+        Arrays.fill(trail, null);
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Receives drained events
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * @param trail Sampled hauler tiles (interleaved x, y) for completions, else null
+         * @param order Position of this event in the drained batch (0-based)
+         * @param batch Total events in the drained batch
+         */
+        void accept(byte type, int resourceIndex, int sourceRoom, int destRoom, float distance, int[] trail,
+                    int order, int batch);
+    }
+}
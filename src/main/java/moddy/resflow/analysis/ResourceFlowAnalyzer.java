@@ -23,6 +23,7 @@ import settlement.room.service.market.MarketBridge;
 import snake2d.LOG;
 import snake2d.util.datatypes.COORDINATE;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -39,6 +40,11 @@ import java.util.Set;
  */
 public class ResourceFlowAnalyzer {
 
+    // Heatmap heat for one hauler passing a tile: the old per-scan sample, so one pass clears the 0.1 render threshold
+    private static final float TRAFFIC_PER_VISIT = 0.5f;
+    // Longest gap between two samples (tiles) still drawn as a straight segment
+    private static final int MAX_TRAFFIC_SEGMENT = 128;
+
     /**
      * -- GETTER --
      * Get the data object for saving
@@ -47,6 +53,12 @@ public class ResourceFlowAnalyzer {
     private final ResourceFlowData data;
     // Track active haulers to detect when they complete trips
     private final Map<Integer, HaulerState> activeHaulers = new HashMap<>();
+    /**
+     * -- GETTER --
+     * Pickup/completion events from the hauler scan, drained by the flow tracker
+     */
+    @Getter
+    private final HaulEventQueue haulEvents = new HaulEventQueue();
     // Cached previous storage amounts for detecting production/consumption
     private final Map<RESOURCE, Integer> lastStorageAmounts = new HashMap<>();
     // Resource chain cache: maps resource -> set of resources needed to produce it
@@ -287,23 +299,38 @@ public class ResourceFlowAnalyzer {
                 int destTx = dest.x();
                 int destTy = dest.y();
 
-                // Track traffic heatmap (increment current tile traffic)
-                long trafficKey = (long) currentTx << 32 | currentTy;
-                data.getTileTraffic().merge(trafficKey, 0.5f, Float::sum);
-
                 // Check if this is a new hauler we haven't seen
-                if (!activeHaulers.containsKey(entityId)) {
+                HaulerState known = activeHaulers.get(entityId);
+                if (known != null) {
+                    // Track traffic heatmap along the stretch walked since the last sample
+                    recordTrafficSegment(known.heatX, known.heatY, currentTx, currentTy,
+                        currentTime - known.heatTime, carried);
+                    known.heatX = currentTx;
+                    known.heatY = currentTy;
+                    known.heatTime = currentTime;
+
+                    // Sampled positions along the real route, for path reconstruction
+                    known.sample(currentTx, currentTy);
+                } else {
+                    // First sighting: one visit on the current tile, as the old per-scan sample
+                    data.recordTraffic(encodeTile(currentTx, currentTy), carried, TRAFFIC_PER_VISIT);
+
                     // Determine room types for flow path categorization
                     RoomFlowType startType = classifyTile(currentTx, currentTy, carried);
                     RoomFlowType destType = classifyTile(destTx, destTy, carried);
 
-                    activeHaulers.put(entityId, new HaulerState(
+                    HaulerState state = new HaulerState(
                         entityId, carried,
                         currentTx, currentTy,
                         destTx, destTy,
                         currentTime,
-                        startType, destType
-                    ));
+                        startType, destType,
+                        roomIndexAt(currentTx, currentTy), roomIndexAt(destTx, destTy)
+                    );
+                    activeHaulers.put(entityId, state);
+
+                    haulEvents.push(HaulEventQueue.PICKUP, carried.index(),
+                        state.startRoomIdx, state.destRoomIdx, (float) state.getDistance(), null);
 
                     // Update active hauler count
                     data.getStats(carried).activeHaulers++;
@@ -323,6 +350,8 @@ public class ResourceFlowAnalyzer {
                         state.startRoomType, state.destRoomType);
 
                     data.recordHaulTrip(state.resource, distance, pathType);
+                    haulEvents.push(HaulEventQueue.COMPLETE, state.resource.index(),
+                        state.startRoomIdx, state.destRoomIdx, (float) distance, state.trail());
 
                     // Update active hauler count
                     ResourceFlowData.ResourceFlowStats stats = data.getStats(state.resource);
@@ -335,6 +364,60 @@ public class ResourceFlowAnalyzer {
         }
     }
 
+    /**
+     * Credit one visit to every tile a hauler walked between two samples (Bresenham). A walked corridor
+     * gets the same heat per pass as a tile the old scan happened to sample, however long the segment;
+     * a hauler standing still is credited by the time it stood there, one visit per scan interval.
+     */
+    private void recordTrafficSegment(int x1, int y1, int x2, int y2, double elapsed, RESOURCE resource) {
+        if (elapsed <= 0) return;
+
+        int dx = Math.abs(x2 - x1);
+        int dy = Math.abs(y2 - y1);
+        int steps = Math.max(dx, dy);
+        if (steps > MAX_TRAFFIC_SEGMENT) {
+            // Too far apart for a straight line to mean anything: credit where the hauler is now
+            data.recordTraffic(encodeTile(x2, y2), resource, TRAFFIC_PER_VISIT);
+            return;
+        }
+
+        if (steps == 0) {
+            data.recordTraffic(encodeTile(x2, y2), resource,
+                (float) (TRAFFIC_PER_VISIT * Math.min(1.0, elapsed / updateInterval())));
+            return;
+        }
+
+        // The start tile was credited by the previous segment
+        int sx = x1 < x2 ? 1 : -1;
+        int sy = y1 < y2 ? 1 : -1;
+        int err = dx - dy;
+        int x = x1, y = y1;
+        while (x != x2 || y != y2) {
+            int e2 = 2 * err;
+            if (e2 > -dy) {
+                err -= dy;
+                x += sx;
+            }
+            if (e2 < dx) {
+                err += dx;
+                y += sy;
+            }
+            data.recordTraffic(encodeTile(x, y), resource, TRAFFIC_PER_VISIT);
+        }
+    }
+
+    private static long encodeTile(int tx, int ty) {
+        return ((long) tx << 32) | (ty & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Room instance index at a tile, or -1 when the tile is not part of a room instance
+     */
+    private int roomIndexAt(int tx, int ty) {
+        Room room = SETT.ROOMS().map.get(tx, ty);
+        return room instanceof RoomInstance instance ? instance.index() : -1;
+    }
+
     /**
      * Classify a tile location by what type of room is there
      */
@@ -662,6 +745,8 @@ public class ResourceFlowAnalyzer {
      * Tracks state of a single hauler for trip completion detection
      */
     private static class HaulerState {
+        private static final int MAX_TRAIL_SAMPLES = 128;
+
         final int entityId;
         RESOURCE resource;
         int startTileX, startTileY;
@@ -669,9 +754,16 @@ public class ResourceFlowAnalyzer {
         double startTime;
         RoomFlowType startRoomType;
         RoomFlowType destRoomType;
+        int startRoomIdx, destRoomIdx;
+        // Tiles sampled while carrying (interleaved x, y), starting with the pickup tile
+        int[] trail = new int[16];
+        int trailLength = 0;
+        // Last position and time credited to the traffic heatmap
+        int heatX, heatY;
+        double heatTime;
 
         HaulerState(int id, RESOURCE res, int sx, int sy, int dx, int dy, double time,
-                    RoomFlowType startType, RoomFlowType destType) {
+                    RoomFlowType startType, RoomFlowType destType, int startIdx, int destIdx) {
             this.entityId = id;
             this.resource = res;
             this.startTileX = sx;
@@ -681,6 +773,37 @@ public class ResourceFlowAnalyzer {
             this.startTime = time;
             this.startRoomType = startType;
             this.destRoomType = destType;
+            this.startRoomIdx = startIdx;
+            this.destRoomIdx = destIdx;
+            this.heatX = sx;
+            this.heatY = sy;
+            this.heatTime = time;
+            sample(sx, sy);
+        }
+
+        /**
+         * Append a sampled position (repeats are skipped; long trips keep every other sample)
+         */
+        void sample(int tx, int ty) {
+            if (trailLength > 0 && trail[trailLength - 2] == tx && trail[trailLength - 1] == ty) return;
+            if (trailLength == trail.length) {
+                if (trail.length < MAX_TRAIL_SAMPLES * 2) {
+                    trail = Arrays.copyOf(trail, trail.length * 2);
+                } else {
+                    int kept = 0;
+                    for (int i = 0; i < trailLength; i += 4) {
+                        trail[kept++] = trail[i];
+                        trail[kept++] = trail[i + 1];
+                    }
+                    trailLength = kept;
+                }
+            }
+            trail[trailLength++] = tx;
+            trail[trailLength++] = ty;
+        }
+
+        int[] trail() {
+            return Arrays.copyOf(trail, trailLength);
         }
 
         double getDistance() {
@@ -696,6 +819,7 @@ public class ResourceFlowAnalyzer {
      */
     public void resetCaches() {
         activeHaulers.clear();
+        haulEvents.clear();
         lastStorageAmounts.clear();
     }
 
@@ -34,6 +34,8 @@ public class ResourceFlowData implements SAVABLE {
     private static final int SAVE_VERSION = 4;
     private static final float TRAFFIC_MAX = 50.0f;
     private static final float TRAFFIC_DECAY_RATE = 0.95f; // Per second decay factor
+    // Below this a tile is dropped; the same threshold the heatmap renders from
+    private static final float TRAFFIC_MIN = 0.1f;
     // Flow statistics per resource
     private final Map<RESOURCE, ResourceFlowStats> flowStats = new HashMap<>();
     // === Logistics Heatmap (Transient) ===
@@ -129,7 +131,7 @@ public class ResourceFlowData implements SAVABLE {
         if (map.isEmpty()) return;
         map.entrySet().removeIf(entry -> {
             float newVal = entry.getValue() * decay;
-            if (newVal < 0.1f) return true; // Remove insignificant values
+            if (newVal < TRAFFIC_MIN) return true; // Remove insignificant values
             entry.setValue(newVal);
             return false;
         });
@@ -139,13 +141,20 @@ public class ResourceFlowData implements SAVABLE {
      * Record traffic on a specific tile for a specific resource
      */
     public void recordTraffic(long encodedTile, RESOURCE resource) {
+        recordTraffic(encodedTile, resource, 0.5f);
+    }
+
+    /**
+     * Record an amount of traffic on a specific tile for a specific resource
+     */
+    public void recordTraffic(long encodedTile, RESOURCE resource, float amount) {
         // Record global traffic
-        tileTraffic.merge(encodedTile, 0.5f, (old, val) -> Math.min(TRAFFIC_MAX, old + val));
+        tileTraffic.merge(encodedTile, amount, (old, val) -> Math.min(TRAFFIC_MAX, old + val));
 
         // Record resource traffic
         if (resource != null) {
             Map<Long, Float> resMap = resourceTraffic.computeIfAbsent(resource, k -> new HashMap<>());
-            resMap.merge(encodedTile, 0.5f, (old, val) -> Math.min(TRAFFIC_MAX, old + val));
+            resMap.merge(encodedTile, amount, (old, val) -> Math.min(TRAFFIC_MAX, old + val));
         }
     }
 
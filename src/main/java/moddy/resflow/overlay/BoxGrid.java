@@ -0,0 +1,140 @@
+package moddy.resflow.overlay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Coarse uniform grid over tile-space bounding boxes, for finding the items that overlap a
+ * viewport without testing every item. Items are registered in every 64x64-tile cell their box
+ * touches; the grid is rebuilt as a whole (CSR: cellItems[cellStart[c] .. cellStart[c + 1]]).
+ */
+final class BoxGrid<T> {
+
+    private static final int CELL_SHIFT = 6; // 64-tile cells
+
+    private final List<T> items = new ArrayList<>();
+    private int[] boxes = new int[0];        // x1, y1, x2, y2 per item
+    private int originX, originY;            // Cell coordinates of the first column / row
+    private int cols = 0, rows = 0;
+    private int[] cellStart = new int[1];
+    private int[] cellItems = new int[0];
+    // Last query that reported each item, so items spanning several cells are reported once
+    private int[] stamp = new int[0];
+    private int queryStamp = 0;
+
+    void clear() {
+        items.clear();
+        cols = 0;
+        rows = 0;
+    }
+
+    void add(T item, int x1, int y1, int x2, int y2) {
+        int i = items.size();
+        if (boxes.length < (i + 1) * 4) {
+            boxes = Arrays.copyOf(boxes, Math.max(64, boxes.length * 2));
+        }
+        boxes[i * 4] = Math.min(x1, x2);
+        boxes[i * 4 + 1] = Math.min(y1, y2);
+        boxes[i * 4 + 2] = Math.max(x1, x2);
+        boxes[i * 4 + 3] = Math.max(y1, y2);
+        items.add(item);
+    }
+
+    /**
+     * Index the added boxes (call once after adding all items)
+     */
+    void build() {
+        int n = items.size();
+        if (n == 0) {
+            cols = 0;
+            rows = 0;
+            return;
+        }
+
+        int minCx = Integer.MAX_VALUE, minCy = Integer.MAX_VALUE;
+        int maxCx = Integer.MIN_VALUE, maxCy = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            minCx = Math.min(minCx, boxes[i * 4] >> CELL_SHIFT);
+            minCy = Math.min(minCy, boxes[i * 4 + 1] >> CELL_SHIFT);
+            maxCx = Math.max(maxCx, boxes[i * 4 + 2] >> CELL_SHIFT);
+            maxCy = Math.max(maxCy, boxes[i * 4 + 3] >> CELL_SHIFT);
+        }
+        originX = minCx;
+        originY = minCy;
+        cols = maxCx - minCx + 1;
+        rows = maxCy - minCy + 1;
+
+        // Counting sort of (item, cell) pairs by cell
+        int cells = cols * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+        } else {
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+        for (int i = 0; i < n; i++) {
+            for (int cy = cellY(boxes[i * 4 + 1]); cy <= cellY(boxes[i * 4 + 3]); cy++) {
+                for (int cx = cellX(boxes[i * 4]); cx <= cellX(boxes[i * 4 + 2]); cx++) {
+                    cellStart[cy * cols + cx + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        if (cellItems.length < cellStart[cells]) {
+            cellItems = new int[cellStart[cells]];
+        }
+        int[] fill = Arrays.copyOf(cellStart, cells);
+        for (int i = 0; i < n; i++) {
+            for (int cy = cellY(boxes[i * 4 + 1]); cy <= cellY(boxes[i * 4 + 3]); cy++) {
+                for (int cx = cellX(boxes[i * 4]); cx <= cellX(boxes[i * 4 + 2]); cx++) {
+                    cellItems[fill[cy * cols + cx]++] = i;
+                }
+            }
+        }
+
+        if (stamp.length < n) {
+            stamp = new int[Math.max(n, stamp.length * 2)];
+        }
+    }
+
+    /**
+     * Add every item whose box overlaps the tile rectangle to out (each item once)
+     */
+    void query(int x1, int y1, int x2, int y2, List<T> out) {
+        if (cols == 0) return;
+        int cx1 = Math.max(0, cellX(x1));
+        int cy1 = Math.max(0, cellY(y1));
+        int cx2 = Math.min(cols - 1, cellX(x2));
+        int cy2 = Math.min(rows - 1, cellY(y2));
+        if (cx1 > cx2 || cy1 > cy2) return;
+
+        if (++queryStamp == 0) {
+            Arrays.fill(stamp, 0);
+            queryStamp = 1;
+        }
+        for (int cy = cy1; cy <= cy2; cy++) {
+            for (int cx = cx1; cx <= cx2; cx++) {
+                int c = cy * cols + cx;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int i = cellItems[k];
+                    if (stamp[i] == queryStamp) continue;
+                    stamp[i] = queryStamp;
+                    if (boxes[i * 4] <= x2 && boxes[i * 4 + 2] >= x1
+                        && boxes[i * 4 + 1] <= y2 && boxes[i * 4 + 3] >= y1) {
+                        out.add(items.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    private int cellX(int tx) {
+        return (tx >> CELL_SHIFT) - originX;
+    }
+
+    private int cellY(int ty) {
+        return (ty >> CELL_SHIFT) - originY;
+    }
+}
@@ -0,0 +1,137 @@
+package moddy.resflow.overlay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Timing wheel for items that expire at a (game) time that only ever moves later.
+ * Items are bucketed by expiry tick; extending an item's expiry costs nothing, because a bucket
+ * re-files items that are not yet due when it is visited. Items further out than the wheel's
+ * span are parked in its last bucket and cascade forward the same way, so the wheel works for
+ * any horizon and expiry is O(1) amortized per item.
+ */
+final class ExpiryWheel<T> {
+
+    private final double tickSeconds;
+    private final List<T>[] buckets;
+    private final ToDoubleFunction<T> expiryOf;
+    private long cursor = Long.MIN_VALUE; // Last processed tick
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    ExpiryWheel(double tickSeconds, int bucketCount, ToDoubleFunction<T> expiryOf) {
+        this.tickSeconds = tickSeconds;
+        this.expiryOf = expiryOf;
+        this.buckets = new List[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Track a new item (once per item; later expiry changes are picked up lazily)
+     */
+    void schedule(T item) {
+        file(item);
+        size++;
+    }
+
+    /**
+     * Remove every item whose expiry is at or before now, handing each to onExpired
+     */
+    void advance(double now, Consumer<T> onExpired) {
+        long target = tick(now);
+        if (cursor == Long.MIN_VALUE) {
+            cursor = target - buckets.length;
+        }
+        // After a long gap every bucket is due once; visiting more would only revisit them
+        long start = Math.max(cursor + 1, target - buckets.length + 1);
+        cursor = target;
+        for (long t = start; t <= target; t++) {
+            List<T> bucket = buckets[index(t)];
+            if (bucket.isEmpty()) continue;
+            List<T> due = new ArrayList<>(bucket);
+            bucket.clear();
+            for (T item : due) {
+                if (expiryOf.applyAsDouble(item) <= now) {
+                    size--;
+                    onExpired.accept(item);
+                } else {
+                    file(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the item expiring soonest (the least recently seen), handing it to onEvicted
+     *
+     * @return false if the wheel is empty
+     */
+    boolean evictOldest(Consumer<T> onEvicted) {
+        if (size == 0) return false;
+        long first = cursor == Long.MIN_VALUE ? 0 : cursor + 1;
+        for (long t = first; t < first + buckets.length; t++) {
+            List<T> bucket = buckets[index(t)];
+
+            // Items seen since they were filed belong to a later bucket: re-file them first
+            for (int i = bucket.size() - 1; i >= 0; i--) {
+                T item = bucket.get(i);
+                if (tick(expiryOf.applyAsDouble(item)) > t) {
+                    bucket.set(i, bucket.get(bucket.size() - 1));
+                    bucket.remove(bucket.size() - 1);
+                    file(item);
+                }
+            }
+            if (bucket.isEmpty()) continue;
+
+            int best = 0;
+            double bestExpiry = Double.MAX_VALUE;
+            for (int i = 0; i < bucket.size(); i++) {
+                double expiry = expiryOf.applyAsDouble(bucket.get(i));
+                if (expiry < bestExpiry) {
+                    bestExpiry = expiry;
+                    best = i;
+                }
+            }
+            T item = bucket.get(best);
+            bucket.set(best, bucket.get(bucket.size() - 1));
+            bucket.remove(bucket.size() - 1);
+            size--;
+            onEvicted.accept(item);
+            return true;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (List<T> bucket : buckets) {
+            bucket.clear();
+        }
+        size = 0;
+        cursor = Long.MIN_VALUE;
+    }
+
+    private void file(T item) {
+        long t = tick(expiryOf.applyAsDouble(item));
+        if (cursor != Long.MIN_VALUE) {
+            // Already due: next advance; beyond the span: last bucket, re-filed when visited
+            t = Math.max(cursor + 1, Math.min(t, cursor + buckets.length));
+        }
+        buckets[index(t)].add(item);
+    }
+
+    private long tick(double time) {
+        return (long) Math.floor(time / tickSeconds);
+    }
+
+    private int index(long tick) {
+        return (int) Math.floorMod(tick, (long) buckets.length);
+    }
+}
@@ -6,82 +6,132 @@ import moddy.resflow.analysis.ResourceFlowData;
 import snake2d.Renderer;
 import snake2d.util.color.COLOR;
 import snake2d.util.color.ColorImp;
+import snake2d.util.rnd.RND;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import static moddy.resflow.ModConfig.debug;
 
 /**
  * Manages particle spawning and lifecycle for flow visualization.
  * Mathematical approach:
- * - Spawn rate proportional to actual production/haul volume
- * - Particle speed based on hauler efficiency
+ * - One particle per observed hauler pickup, released with a delay so a scan's batch streams out evenly
+ * - Particle limits come from a budget the tracker distributes by observed route volume
+ * - Particle speed based on hauler efficiency, in true tiles per second along the path's arc length
+ * - Positions are fractional and drawn at sub-tile offsets, so motion is smooth at low densities
  * - Visual intensity scales with flow volume (more particles = busier route)
  * Performance optimizations:
- * - Particle pooling to reduce allocations
- * - Maximum particle cap per connection
- * - Automatic cleanup of dead particles
+ * - Struct-of-arrays particle storage: one primitive array per field, no particle objects
+ * - Dead particles are swap-removed, so live particles are always packed in [0, count)
+ * - Spatial index is a counting sort of particle indices by tile bucket, rebuilt in place
+ * - Arrays only grow, so steady-state updates and renders allocate nothing
  */
 public class FlowParticleSystem {
 
-    // Maximum particles per connection (performance limit)
-    private static final int MAX_PARTICLES_PER_CONNECTION = 20;
-    // Maximum total particles (performance cap)
-    private static final int MAX_TOTAL_PARTICLES = 500;
-    // Active particles
-    private final List<FlowParticle> activeParticles = new ArrayList<>();
-    // Spatial index: tile coordinate -> list of particles at that tile (rebuilt each update)
-    private final Map<Long, List<FlowParticle>> particleTileMap = new HashMap<>();
-    // Particle pool for reuse
-    private final Queue<FlowParticle> particlePool = new LinkedList<>();
-    // Spawn tracking per connection (to limit particle density)
-    private final Map<String, ConnectionSpawnData> spawnTracking = new HashMap<>();
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MIN_BUCKETS = 64;
+
+    // Particle colors indexed by FlowPathType ordinal (shared, never allocated per spawn)
+    private static final COLOR[] FLOW_TYPE_COLORS = new COLOR[ResourceFlowData.FlowPathType.values().length];
+    private static final FlowParticle.ParticleType[] PARTICLE_TYPES = FlowParticle.ParticleType.values();
+
+    static {
+        for (ResourceFlowData.FlowPathType flowType : ResourceFlowData.FlowPathType.values()) {
+            FLOW_TYPE_COLORS[flowType.ordinal()] = switch (flowType) {
+                case PROD_TO_STORAGE -> new ColorImp(100, 255, 150);   // Green-cyan (harvest)
+                case STORAGE_TO_CONS -> new ColorImp(255, 150, 100);   // Red-orange (delivery)
+                case PROD_TO_CONS -> new ColorImp(255, 255, 100);      // Yellow (direct)
+                case STORAGE_TO_PROD -> new ColorImp(150, 200, 255);   // Blue (inputs)
+                default -> new ColorImp(255, 200, 50);                 // Gold (unknown)
+            };
+        }
+    }
+
+    // Spawn tracking per live connection (to limit particle density), key -> slot
+    // Released slots are recycled, so callers caching a slot id check it with ownsSlot
+    private final Map<Long, ConnectionSpawnData> spawnTracking = new HashMap<>();
+    // Reused color for rendering (avoids an allocation per particle per frame)
+    private final ColorImp renderColor = new ColorImp();
+    // Connection slots, indexed by particle pathId
+    private ConnectionSpawnData[] slots = new ConnectionSpawnData[64];
+    private int slotCount = 0;
+    // Released slot ids, reused before new slots are created
+    private int[] freeSlots = new int[16];
+    private int freeCount = 0;
+    // Total live particle cap, set by the tracker's budget allocator
+    private int totalBudget = ModConfig.FLOW_PARTICLE_BUDGET;
+
+    // === Particle state (struct-of-arrays, live particles are [0, count)) ===
+    private int count = 0;
+    private float[] progress = new float[INITIAL_CAPACITY]; // distance / path length, for fades
+    private float[] distance = new float[INITIAL_CAPACITY]; // Arc length travelled, in tiles
+    private float[] speed = new float[INITIAL_CAPACITY];    // Tiles per second
+    private float[] size = new float[INITIAL_CAPACITY];
+    private float[] age = new float[INITIAL_CAPACITY];
+    private float[] sizeVariation = new float[INITIAL_CAPACITY];
+    private float[] colorVariation = new float[INITIAL_CAPACITY];
+    private byte[] colorIndex = new byte[INITIAL_CAPACITY];
+    private byte[] typeIndex = new byte[INITIAL_CAPACITY];
+    private int[] pathId = new int[INITIAL_CAPACITY];
+    private FlowPath[] path = new FlowPath[INITIAL_CAPACITY]; // Path the particle was spawned on
+    private int[] segment = new int[INITIAL_CAPACITY];        // Current segment, only moves forward
+    private float[] posX = new float[INITIAL_CAPACITY];       // Fractional tile position
+    private float[] posY = new float[INITIAL_CAPACITY];
+    private int[] tileX = new int[INITIAL_CAPACITY];          // Nearest tile, for the spatial index
+    private int[] tileY = new int[INITIAL_CAPACITY];
+    private boolean[] culled = new boolean[INITIAL_CAPACITY]; // Path off screen: not placed or indexed
+
+    // === Spatial index (counting sort by tile bucket) ===
+    // bucketStart[b]..bucketStart[b + 1] is the range of bucketItems holding particles in bucket b
+    private int[] bucketStart = new int[MIN_BUCKETS + 1];
+    private int[] bucketItems = new int[INITIAL_CAPACITY];
+    private int[] particleBucket = new int[INITIAL_CAPACITY];
+    private int bucketMask = MIN_BUCKETS - 1;
+    private int indexedCount = 0;
 
     /**
-     * Encode tile coordinates to a single long for HashMap key
+     * Hash tile coordinates into a spatial index bucket
      */
-    private static long encodeTile(int x, int y) {
-        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    private static int bucketOf(int x, int y, int mask) {
+        return ((x * 73856093) ^ (y * 19349663)) & mask;
     }
 
     /**
      * Generate connection key from connection parameters
      */
-    public static String makeConnectionKey(int srcRoomIdx, int dstRoomIdx, RESOURCE resource) {
-        return srcRoomIdx + "->" + dstRoomIdx + ":" + (resource != null ? resource.index() : -1);
+    public static long makeConnectionKey(int srcRoomIdx, int dstRoomIdx, RESOURCE resource) {
+        long res = resource != null ? resource.index() + 1 : 0;
+        return ((long) srcRoomIdx << 40) | ((long) (dstRoomIdx & 0xFFFFFF) << 16) | (res & 0xFFFF);
     }
 
     /**
-     * Update all particles and handle spawning
+     * Update all particles and handle spawning.
+     * Particles whose path lies entirely outside the visible tile rectangle (viewX1..viewY2, inclusive)
+     * only advance their travelled distance; they are placed and indexed again once their path is back on screen.
      *
      * @param deltaSeconds Time since last update
      */
-    public void update(double deltaSeconds) {
+    public void update(double deltaSeconds, int viewX1, int viewY1, int viewX2, int viewY2) {
+        float dt = (float) deltaSeconds;
 
         int deadCount = 0;
-        // Update existing particles
-        Iterator<FlowParticle> iterator = activeParticles.iterator();
-        while (iterator.hasNext()) {
-            FlowParticle particle = iterator.next();
-            if (!particle.update(deltaSeconds)) {
-                // Particle is dead, return to pool and remove from active list
-                iterator.remove();
-                returnToPool(particle);
+        // Update existing particles; dead ones are swap-removed so i is re-checked
+        int i = 0;
+        while (i < count) {
+            age[i] += dt;
+            culled[i] = !path[i].overlaps(viewX1, viewY1, viewX2, viewY2);
+            if (!advance(i, dt)) {
+                removeAt(i);
                 deadCount++;
+                continue;
             }
+            i++;
         }
 
-        // Update spawn timers
-        for (ConnectionSpawnData data : spawnTracking.values()) {
-            data.timeSinceLastSpawn += deltaSeconds;
-            // Decay particle count slowly to prevent getting stuck
-            if (data.timeSinceLastSpawn > 5.0 && data.particleCount > 0) {
-                data.particleCount = Math.max(0, data.particleCount - 1);
-            }
-        }
-
-        if (deadCount > 0 && activeParticles.size() % 10 == 0) {
-            debug("Particles: " + activeParticles.size() + " active, pool: " + particlePool.size() + " (" + deadCount + " died)");
+        if (deadCount > 0 && count % 10 == 0) {
+            debug("Particles: " + count + " active, capacity: " + progress.length + " (" + deadCount + " died)");
         }
 
         // Rebuild spatial index for efficient tile lookup during rendering
@@ -89,69 +139,291 @@ public class FlowParticleSystem {
     }
 
     /**
-     * Rebuild the particle tile map for O(1) lookup during rendering
+     * Advance one particle along its path by arc length
+     *
+     * @return false when the particle reached the end of its path
      */
-    private void rebuildSpatialIndex() {
-        particleTileMap.clear();
-        for (FlowParticle particle : activeParticles) {
-            long tileKey = encodeTile(particle.getCurrentTileX(), particle.getCurrentTileY());
-            particleTileMap.computeIfAbsent(tileKey, k -> new ArrayList<>(4)).add(particle);
+    private boolean advance(int i, float dt) {
+        // Negative age = still waiting for its release delay, parked at the path start
+        if (age[i] < 0f) {
+            return true;
+        }
+
+        FlowPath p = path[i];
+        float length = p.length();
+        if (length <= 0f) {
+            return false;
+        }
+
+        distance[i] += speed[i] * dt;
+        progress[i] = distance[i] / length;
+
+        // Kill particle when it reaches the end
+        if (progress[i] >= 1.0f) {
+            return false;
+        }
+
+        if (!culled[i]) {
+            placeOnPath(i, p);
         }
+        return true;
     }
 
     /**
-     * Attempt to spawn a particle on a connection
-     *
-     * @param connectionKey Unique identifier for this connection
-     * @param pathTiles     Path for particle to follow
-     * @param flowVolume    Intensity of flow (affects spawn rate and particle speed)
-     * @param color         Particle color
-     * @param resource      Associated resource
-     * @param type          Particle visual type
+     * Interpolate the particle position from its travelled distance.
+     * The segment cursor only moves forward, so this is amortised O(1) per update.
+     */
+    private void placeOnPath(int i, FlowPath p) {
+        int seg = segment[i];
+        int last = p.size() - 2;
+        float d = distance[i];
+        while (seg < last && p.cumulativeLength(seg + 1) <= d) {
+            seg++;
+        }
+        segment[i] = seg;
+
+        float segStart = p.cumulativeLength(seg);
+        float segLength = p.cumulativeLength(seg + 1) - segStart;
+        float t = segLength > 0f ? Math.min(1f, (d - segStart) / segLength) : 0f;
+
+        int sx = p.x(seg);
+        int sy = p.y(seg);
+        posX[i] = sx + (p.x(seg + 1) - sx) * t;
+        posY[i] = sy + (p.y(seg + 1) - sy) * t;
+        tileX[i] = Math.round(posX[i]);
+        tileY[i] = Math.round(posY[i]);
+    }
+
+    /**
+     * Remove a particle by moving the last live particle into its slot
+     */
+    private void removeAt(int i) {
+        ConnectionSpawnData data = slots[pathId[i]];
+        data.particleCount = Math.max(0, data.particleCount - 1);
+
+        int last = --count;
+        if (i != last) {
+            progress[i] = progress[last];
+            distance[i] = distance[last];
+            speed[i] = speed[last];
+            size[i] = size[last];
+            age[i] = age[last];
+            sizeVariation[i] = sizeVariation[last];
+            colorVariation[i] = colorVariation[last];
+            colorIndex[i] = colorIndex[last];
+            typeIndex[i] = typeIndex[last];
+            pathId[i] = pathId[last];
+            path[i] = path[last];
+            segment[i] = segment[last];
+            posX[i] = posX[last];
+            posY[i] = posY[last];
+            tileX[i] = tileX[last];
+            tileY[i] = tileY[last];
+            culled[i] = culled[last];
+        }
+        path[last] = null;
+    }
+
+    /**
+     * Rebuild the bucket index for O(1) lookup during rendering.
+     * Counting sort: count per bucket, prefix-sum to bucket ends, then place indices walking ends back down.
      */
-    public void spawnParticle(String connectionKey, List<FlowParticle.PathTile> pathTiles,
-                              double flowVolume, COLOR color, RESOURCE resource,
-                              FlowParticle.ParticleType type) {
+    private void rebuildSpatialIndex() {
+        int buckets = MIN_BUCKETS;
+        while (buckets < count * 2) {
+            buckets <<= 1;
+        }
+        if (bucketStart.length < buckets + 1) {
+            bucketStart = new int[buckets + 1];
+        }
+        if (bucketItems.length < progress.length) {
+            bucketItems = new int[progress.length];
+            particleBucket = new int[progress.length];
+        }
+        bucketMask = buckets - 1;
+
+        Arrays.fill(bucketStart, 0, buckets + 1, 0);
+        int indexed = 0;
+        for (int i = 0; i < count; i++) {
+            if (culled[i]) continue;
+            int b = bucketOf(tileX[i], tileY[i], bucketMask);
+            particleBucket[i] = b;
+            bucketStart[b]++;
+            indexed++;
+        }
+        for (int b = 1; b < buckets; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        bucketStart[buckets] = indexed;
+        for (int i = count - 1; i >= 0; i--) {
+            if (culled[i]) continue;
+            bucketItems[--bucketStart[particleBucket[i]]] = i;
+        }
+        indexedCount = indexed;
+    }
 
-        // Check global particle limit
-        if (activeParticles.size() >= MAX_TOTAL_PARTICLES) {
+    /**
+     * Make sure particle arrays can hold one more particle
+     */
+    private void ensureCapacity() {
+        if (count < progress.length) {
             return;
         }
+        int capacity = progress.length * 2;
+        progress = Arrays.copyOf(progress, capacity);
+        distance = Arrays.copyOf(distance, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        size = Arrays.copyOf(size, capacity);
+        age = Arrays.copyOf(age, capacity);
+        sizeVariation = Arrays.copyOf(sizeVariation, capacity);
+        colorVariation = Arrays.copyOf(colorVariation, capacity);
+        colorIndex = Arrays.copyOf(colorIndex, capacity);
+        typeIndex = Arrays.copyOf(typeIndex, capacity);
+        pathId = Arrays.copyOf(pathId, capacity);
+        path = Arrays.copyOf(path, capacity);
+        segment = Arrays.copyOf(segment, capacity);
+        posX = Arrays.copyOf(posX, capacity);
+        posY = Arrays.copyOf(posY, capacity);
+        tileX = Arrays.copyOf(tileX, capacity);
+        tileY = Arrays.copyOf(tileY, capacity);
+        culled = Arrays.copyOf(culled, capacity);
+    }
 
-        // Get or create spawn data for this connection
-        ConnectionSpawnData data = spawnTracking.computeIfAbsent(
-            connectionKey, k -> new ConnectionSpawnData()
-        );
+    /**
+     * Resolve (or create) the spawn slot for a connection.
+     * The returned id stays valid until the slot is released ({@link #releaseSlot}, {@link #clearConnection}
+     * or {@link #clear}), so callers should cache it and pass it to {@link #spawnParticle} instead of
+     * resolving every frame.
+     */
+    public int connectionSlot(int srcRoomIdx, int dstRoomIdx, RESOURCE resource) {
+        long key = makeConnectionKey(srcRoomIdx, dstRoomIdx, resource);
+        ConnectionSpawnData data = spawnTracking.get(key);
+        if (data == null) {
+            data = newSlot(key);
+            spawnTracking.put(key, data);
+        }
+        return data.id;
+    }
 
-        // Update spawn interval based on flow volume
-        data.updateSpawnInterval(flowVolume);
+    /**
+     * @return true if the slot is live and still belongs to the connection key (not released or recycled)
+     */
+    public boolean ownsSlot(int slot, long connectionKey) {
+        if (slot < 0 || slot >= slotCount) return false;
+        ConnectionSpawnData data = slots[slot];
+        return data.live && data.key == connectionKey;
+    }
 
-        // Check if we should spawn based on timing
-        if (data.timeSinceLastSpawn < data.spawnInterval) {
-            return;
+    /**
+     * Release a connection's slot: its particles are removed and the id is recycled
+     */
+    public void releaseSlot(int slot) {
+        if (slot < 0 || slot >= slotCount || !slots[slot].live) return;
+        ConnectionSpawnData data = slots[slot];
+
+        int i = 0;
+        while (i < count) {
+            if (pathId[i] == data.id) {
+                removeAt(i);
+                continue;
+            }
+            i++;
         }
+        spawnTracking.remove(data.key);
+        data.live = false;
+        data.reset();
+        data.budget = 0;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = data.id;
+        rebuildSpatialIndex();
+    }
+
+    /**
+     * Spawn one particle on a connection.
+     * Rejected spawns allocate nothing; accepted spawns only write one row of the particle arrays.
+     *
+     * @param slot       Connection slot from {@link #connectionSlot}
+     * @param path       Shared path for the particle to follow
+     * @param flowVolume Intensity of flow (affects particle speed and size)
+     * @param flowType   Flow path type (selects particle color)
+     * @param type       Particle visual type
+     * @param delay      Seconds before the particle starts moving and becomes visible
+     */
+    public void spawnParticle(int slot, FlowPath path,
+                              double flowVolume, ResourceFlowData.FlowPathType flowType,
+                              FlowParticle.ParticleType type, double delay) {
 
-        // Check per-connection particle limit
-        if (data.particleCount >= MAX_PARTICLES_PER_CONNECTION) {
+        // Check global particle budget; paths without length have nothing to animate
+        if (count >= totalBudget || path == null || path.length() <= 0f) {
             return;
         }
 
-        // Calculate particle properties based on flow volume
-        double speed = calculateParticleSpeed(flowVolume);
-        float size = calculateParticleSize(flowVolume);
+        ConnectionSpawnData data = slots[slot];
 
-        // Get particle from pool or create new one
-        FlowParticle particle = getFromPool();
-        if (particle == null) {
-            particle = new FlowParticle();
+        // Check this connection's share of the budget
+        if (data.particleCount >= data.budget) {
+            return;
         }
 
-        // Initialize/reset particle with new parameters
-        particle.reset(pathTiles, speed, color, size, resource, type);
+        ensureCapacity();
+        int i = count++;
+        progress[i] = 0f;
+        distance[i] = 0f;
+        speed[i] = (float) calculateParticleSpeed(flowVolume);
+        size[i] = calculateParticleSize(flowVolume);
+        age[i] = (float) -Math.max(0.0, delay);
+        // Add variety to each particle (like FireSparks and WeatherDownfallRenderer)
+        sizeVariation[i] = 0.8f + RND.rFloat() * 0.4f;    // 0.8 to 1.2
+        colorVariation[i] = 0.9f + RND.rFloat() * 0.2f;   // 0.9 to 1.1
+        colorIndex[i] = (byte) flowType.ordinal();
+        typeIndex[i] = (byte) type.ordinal();
+        pathId[i] = data.id;
+        // Particles keep the (immutable) path they spawned on, even if the connection re-paths
+        this.path[i] = path;
+        segment[i] = 0;
+        culled[i] = false;
+        placeOnPath(i, path);
 
-        activeParticles.add(particle);
         data.particleCount++;
-        data.timeSinceLastSpawn = 0.0;
+    }
+
+    /**
+     * Start a new budget allocation: set the total cap and zero every connection's share.
+     * Connections not given a share afterwards spawn nothing until the next allocation.
+     * Particles above a reduced share are not removed, they just are not replaced.
+     */
+    public void resetBudgets(int total) {
+        totalBudget = Math.max(0, total);
+        for (int s = 0; s < slotCount; s++) {
+            slots[s].budget = 0;
+        }
+    }
+
+    /**
+     * Set the maximum live particles for one connection slot
+     */
+    public void setConnectionBudget(int slot, int budget) {
+        slots[slot].budget = Math.max(0, budget);
+    }
+
+    private ConnectionSpawnData newSlot(long key) {
+        ConnectionSpawnData data;
+        if (freeCount > 0) {
+            data = slots[freeSlots[--freeCount]];
+        } else {
+            if (slotCount == slots.length) {
+                slots = Arrays.copyOf(slots, slotCount * 2);
+            }
+            data = new ConnectionSpawnData(slotCount);
+            slots[slotCount++] = data;
+        }
+        data.key = key;
+        data.live = true;
+        data.reset();
+        data.budget = 0;
+        return data;
     }
 
     /**
@@ -159,8 +431,8 @@ public class FlowParticleSystem {
      * Higher flow = faster particles (busier economy looks more active)
      */
     private double calculateParticleSpeed(double flowVolume) {
-        // Base speed: 5 tiles/second
-        // Scale up to 20 tiles/second for high flow
+        // True tiles per second along the path
+        // Base speed: 5 tiles/second, scale up to 20 tiles/second for high flow
         double baseSpeed = ModConfig.FLOW_PARTICLE_BASE_SPEED;
         double maxSpeed = ModConfig.FLOW_PARTICLE_MAX_SPEED;
 
@@ -188,6 +460,7 @@ public class FlowParticleSystem {
      * Render particles at a specific tile during overlay rendering
      * Called from ResourceFlowTracker.render() for each tile
      * Uses spatial index for O(1) lookup instead of O(n) iteration
+     * Particles are drawn at their sub-tile offset from the tile centre
      *
      * @param renderer Renderer instance
      * @param tileX    Tile X coordinate
@@ -197,124 +470,105 @@ public class FlowParticleSystem {
      * @param tileSize Tile size (C.TILE_SIZE)
      */
     public void renderAtTile(Renderer renderer, int tileX, int tileY, int screenX, int screenY, int tileSize) {
-        if (particleTileMap.isEmpty()) return;
-
-        // O(1) lookup using spatial index
-        long tileKey = encodeTile(tileX, tileY);
-        List<FlowParticle> particlesAtTile = particleTileMap.get(tileKey);
-        if (particlesAtTile == null) return;
-
-        for (FlowParticle particle : particlesAtTile) {
-            particle.renderAtTile(renderer, screenX, screenY, tileSize);
+        if (indexedCount == 0) return;
+
+        // O(1) bucket lookup using spatial index; buckets are shared by hash, so confirm the tile
+        int b = bucketOf(tileX, tileY, bucketMask);
+        int end = bucketStart[b + 1];
+        for (int k = bucketStart[b]; k < end; k++) {
+            int i = bucketItems[k];
+            if (age[i] < 0f || this.tileX[i] != tileX || this.tileY[i] != tileY) continue;
+
+            int offsetX = (int) ((posX[i] - tileX) * tileSize);
+            int offsetY = (int) ((posY[i] - tileY) * tileSize);
+            FlowParticle.render(renderer, renderColor,
+                PARTICLE_TYPES[typeIndex[i]], FLOW_TYPE_COLORS[colorIndex[i]],
+                screenX + tileSize / 2 + offsetX, screenY + tileSize / 2 + offsetY,
+                size[i], sizeVariation[i], colorVariation[i],
+                FlowParticle.opacity(age[i], progress[i]));
         }
     }
 
     /**
-     * Clear all particles (useful for resource switching)
+     * Clear all particles and release every slot (useful for resource switching)
      */
     public void clear() {
-        activeParticles.clear();
-        particleTileMap.clear();
+        Arrays.fill(path, 0, count, null);
+        count = 0;
+        indexedCount = 0;
         spawnTracking.clear();
+        freeCount = 0;
+        for (int s = slotCount - 1; s >= 0; s--) {
+            ConnectionSpawnData data = slots[s];
+            data.live = false;
+            data.reset();
+            data.budget = 0;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = s;
+        }
     }
 
     /**
-     * Clear particles for a specific connection
-     */
-    public void clearConnection(String connectionKey) {
-        activeParticles.removeIf(p -> connectionKey.equals(getConnectionKey(p)));
-        spawnTracking.remove(connectionKey);
-    }
-
-    /**
-     * Get unique key for a particle's connection
-     */
-    private String getConnectionKey(FlowParticle particle) {
-        // For now, we'll need to track this externally
-        // This is a placeholder - in practice, particles should store their connection ID
-        return null;
-    }
-
-    /**
-     * Get particle from pool or return null if pool is empty
-     */
-    private FlowParticle getFromPool() {
-        return particlePool.poll();
-    }
-
-    /**
-     * Return particle to pool for reuse
+     * Clear particles for a specific connection and release its slot
      */
-    private void returnToPool(FlowParticle particle) {
-        // Only pool simple particles (not worth pooling complex ones)
-        if (particlePool.size() < 100) {
-            particlePool.offer(particle);
-        }
+    public void clearConnection(long connectionKey) {
+        ConnectionSpawnData data = spawnTracking.get(connectionKey);
+        if (data == null) return;
+        releaseSlot(data.id);
     }
 
     /**
      * Get current particle count
      */
     public int getParticleCount() {
-        return activeParticles.size();
+        return count;
     }
 
     /**
-     * Get active connection count
+     * Get active connection count (connections holding a live slot)
      */
     public int getActiveConnectionCount() {
         return spawnTracking.size();
     }
 
     /**
-     * Spawn particles based on flow connection data
+     * Spawn a particle for an observed haul on a connection
      * This is the main entry point for creating particles from actual game data
+     *
+     * @param slot  Connection slot from {@link #connectionSlot}
+     * @param path  The connection's shared path
+     * @param delay Seconds before the particle is released
      */
-    public void spawnForConnection(int srcRoomIdx, int dstRoomIdx, RESOURCE resource,
-                                   List<FlowParticle.PathTile> pathTiles,
+    public void spawnForConnection(int slot, FlowPath path,
                                    ResourceFlowData.FlowPathType flowType,
-                                   double flowVolume) {
-
-        String connectionKey = makeConnectionKey(srcRoomIdx, dstRoomIdx, resource);
-
-        // Determine color based on flow type
-        COLOR color = getColorForFlowType(flowType);
+                                   double flowVolume, double delay) {
 
         // Determine particle type based on settings
         FlowParticle.ParticleType type = ModConfig.FLOW_PARTICLE_USE_GLOW
             ? FlowParticle.ParticleType.GLOW
             : FlowParticle.ParticleType.DOT;
 
-        spawnParticle(connectionKey, pathTiles, flowVolume, color, resource, type);
-    }
-
-    /**
-     * Get particle color based on flow path type
-     */
-    private COLOR getColorForFlowType(ResourceFlowData.FlowPathType flowType) {
-        return switch (flowType) {
-            case PROD_TO_STORAGE -> new ColorImp(100, 255, 150);   // Green-cyan (harvest)
-            case STORAGE_TO_CONS -> new ColorImp(255, 150, 100);   // Red-orange (delivery)
-            case PROD_TO_CONS -> new ColorImp(255, 255, 100);      // Yellow (direct)
-            case STORAGE_TO_PROD -> new ColorImp(150, 200, 255);   // Blue (inputs)
-            default -> new ColorImp(255, 200, 50);                 // Gold (unknown)
-        };
+        spawnParticle(slot, path, flowVolume, flowType, type, delay);
     }
 
     /**
      * Tracks spawn data for a single connection
      */
     private static class ConnectionSpawnData {
+        final int id; // Slot index, stored per particle as pathId
+        long key;     // Connection key while live
+        boolean live = false;
         int particleCount = 0;
-        double timeSinceLastSpawn = 0.0;
-        double spawnInterval = 1.0; // Seconds between spawns
-
-        // Flow volume affects spawn rate (higher volume = faster spawning)
-        void updateSpawnInterval(double flowVolume) {
-            // Base spawn interval is 1 second, reduced by flow volume
-            // flowVolume of 1.0 = spawn every 1 sec
-            // flowVolume of 10.0 = spawn every 0.1 sec
-            spawnInterval = Math.max(0.1, 1.0 / Math.max(0.5, flowVolume));
+        int budget = 0; // Max live particles, assigned by the budget allocator
+
+        ConnectionSpawnData(int id) {
+            this.id = id;
+        }
+
+        void reset() {
+            particleCount = 0;
         }
     }
 }
@@ -0,0 +1,113 @@
+package moddy.resflow.overlay;
+
+/**
+ * Immutable, packed polyline that a flow connection draws along and its particles travel along.
+ * Owned by the connection and rebuilt only when the connection refreshes its path, so every
+ * particle on the connection shares one instance instead of copying tiles per spawn.
+ * Layout:
+ * - xs/ys: tile coordinates of each path point, source first
+ * - cumulative: arc length from the first point to point i (cumulative[0] = 0)
+ * - minX..maxY: tile-space bounding box of the points, for viewport culling
+ */
+public final class FlowPath {
+
+    public static final FlowPath EMPTY = new FlowPath(new int[0], new int[0]);
+
+    private final int[] xs;
+    private final int[] ys;
+    private final float[] cumulative;
+    private final float length;
+    private final int minX, minY, maxX, maxY;
+
+    /**
+     * Takes ownership of the given arrays (callers must not modify them afterwards)
+     */
+    FlowPath(int[] xs, int[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        this.cumulative = new float[xs.length];
+
+        float total = 0;
+        for (int i = 1; i < xs.length; i++) {
+            int dx = xs[i] - xs[i - 1];
+            int dy = ys[i] - ys[i - 1];
+            total += (float) Math.sqrt(dx * dx + dy * dy);
+            cumulative[i] = total;
+        }
+        this.length = total;
+
+        // Empty paths get an inverted box that overlaps nothing
+        int x1 = Integer.MAX_VALUE, y1 = Integer.MAX_VALUE;
+        int x2 = Integer.MIN_VALUE, y2 = Integer.MIN_VALUE;
+        for (int i = 0; i < xs.length; i++) {
+            x1 = Math.min(x1, xs[i]);
+            y1 = Math.min(y1, ys[i]);
+            x2 = Math.max(x2, xs[i]);
+            y2 = Math.max(y2, ys[i]);
+        }
+        this.minX = x1;
+        this.minY = y1;
+        this.maxX = x2;
+        this.maxY = y2;
+    }
+
+    /**
+     * Two-point path used when no component path is available
+     */
+    static FlowPath straight(int srcX, int srcY, int dstX, int dstY) {
+        return new FlowPath(new int[]{srcX, dstX}, new int[]{srcY, dstY});
+    }
+
+    public int size() {
+        return xs.length;
+    }
+
+    public boolean isEmpty() {
+        return xs.length == 0;
+    }
+
+    public int x(int i) {
+        return xs[i];
+    }
+
+    public int y(int i) {
+        return ys[i];
+    }
+
+    /**
+     * Arc length from the start of the path to point i
+     */
+    public float cumulativeLength(int i) {
+        return cumulative[i];
+    }
+
+    /**
+     * Total arc length in tiles
+     */
+    public float length() {
+        return length;
+    }
+
+    public int minX() {
+        return minX;
+    }
+
+    public int minY() {
+        return minY;
+    }
+
+    public int maxX() {
+        return maxX;
+    }
+
+    public int maxY() {
+        return maxY;
+    }
+
+    /**
+     * @return true if any part of the path's bounding box lies in the tile rectangle
+     */
+    public boolean overlaps(int x1, int y1, int x2, int y2) {
+        return minX <= x2 && maxX >= x1 && minY <= y2 && maxY >= y1;
+    }
+}
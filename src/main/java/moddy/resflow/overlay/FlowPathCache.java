@@ -0,0 +1,136 @@
+package moddy.resflow.overlay;
+
+import settlement.main.SETT;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of extracted component paths, keyed by the path's endpoint tiles.
+ * Many connections share a route (one stockpile serving dozens of workshops, one room pair
+ * carrying several resources); each route is requested from the component pather once and the
+ * resulting {@link FlowPath} and its {@link PathTiles} are shared immutably between connections.
+ * Entries expire after the refresh interval and the whole cache is dropped when rooms change,
+ * since either can re-route the component graph.
+ */
+final class FlowPathCache {
+
+    private static final int CAPACITY = 1024;
+
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+    private long roomFingerprint = 0;
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * Drop every cached path if the room layout changed since the last call
+     *
+     * @return true if the cache was dropped
+     */
+    boolean validate(long roomFingerprint) {
+        if (roomFingerprint == this.roomFingerprint) return false;
+        entries.clear();
+        this.roomFingerprint = roomFingerprint;
+        return true;
+    }
+
+    /**
+     * Cached path between two tiles, requested from the component pather on a miss or when older than maxAge
+     */
+    Entry get(int srcX, int srcY, int dstX, int dstY, double currentTime, double maxAge) {
+        long key = routeKey(srcX, srcY, dstX, dstY);
+        Entry entry = entries.get(key);
+        if (entry != null && currentTime - entry.time < maxAge && currentTime >= entry.time) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        FlowPath path = requestPath(srcX, srcY, dstX, dstY);
+        entry = new Entry(path, PathTiles.of(path), currentTime);
+        entries.put(key, entry);
+        return entry;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return "hits/misses" since the last call, for debug logging
+     */
+    String takeStats() {
+        String stats = hits + "/" + misses;
+        hits = 0;
+        misses = 0;
+        return stats;
+    }
+
+    private static long routeKey(int srcX, int srcY, int dstX, int dstY) {
+        return ((long) (srcX & 0xFFFF) << 48) | ((long) (srcY & 0xFFFF) << 32)
+            | ((long) (dstX & 0xFFFF) << 16) | (dstY & 0xFFFFL);
+    }
+
+    /**
+     * Request a SIMPLIFIED component-based path (much faster than full A*)
+     * <p>
+     * CRITICAL: SCompFinder returns a SHARED, MUTABLE object that gets overwritten
+     * by subsequent calls! We MUST extract and copy the data IMMEDIATELY!
+     */
+    private static FlowPath requestPath(int srcX, int srcY, int dstX, int dstY) {
+        FlowPath newPath = null;
+        try {
+            settlement.path.components.finder.SCompFinder.SCompPath compPath =
+                SETT.PATH().comps.pather.findDest(srcX, srcY, dstX, dstY);
+
+            if (compPath != null && compPath.path() != null) {
+                // Component paths are in REVERSE order (dest->source): copy them source->dest
+                snake2d.util.sets.LIST<settlement.path.components.SComponent> components = compPath.path();
+                int count = components.size();
+                int[] xs = new int[count];
+                int[] ys = new int[count];
+                int n = 0;
+
+                for (int i = count - 1; i >= 0; i--) {
+                    settlement.path.components.SComponent comp = components.get(i);
+                    if (comp != null) {
+                        xs[n] = comp.centreX();
+                        ys[n] = comp.centreY();
+                        n++;
+                    }
+                }
+
+                if (n > 0) {
+                    newPath = n == count
+                        ? new FlowPath(xs, ys)
+                        : new FlowPath(java.util.Arrays.copyOf(xs, n), java.util.Arrays.copyOf(ys, n));
+                }
+            }
+        } catch (Exception e) {
+            // Silent fallback to straight line
+            newPath = null;
+        }
+
+        // Fallback: if no component path, use straight line
+        return newPath != null ? newPath : FlowPath.straight(srcX, srcY, dstX, dstY);
+    }
+
+    /**
+     * One cached route: the path, its rasterised tiles and when it was requested (game time)
+     */
+    static final class Entry {
+        final FlowPath path;
+        final PathTiles tiles;
+        final double time;
+
+        Entry(FlowPath path, PathTiles tiles, double time) {
+            this.path = path;
+            this.tiles = tiles;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package moddy.resflow.overlay;
+
+import java.util.Arrays;
+
+/**
+ * Weighted graph of routes haulers were actually seen completing: one edge per
+ * (source room, destination room, resource) with trip count, recent volume and average distance.
+ * Built once per tracker rebuild from the live observed flows and stored as CSR adjacency by
+ * room index in both directions (outgoing by source, incoming by destination), so "does this
+ * room already ship / receive this resource" is a scan of one room's edges.
+ */
+final class ObservedRouteGraph {
+
+    // Edge arrays, ordered by source room
+    private int edgeCount = 0;
+    private int[] dest = new int[0];
+    private int[] resource = new int[0];
+    private int[] trips = new int[0];
+    private float[] volume = new float[0];
+    private float[] distance = new float[0];
+
+    // Outgoing: edges outStart[r] .. outStart[r + 1] have source r
+    private int[] outStart = new int[1];
+    // Incoming: inEdges[inStart[r] .. inStart[r + 1]] are edge ids with destination r
+    private int[] inStart = new int[1];
+    private int[] inEdges = new int[0];
+    private int rooms = 0;
+
+    // Unsorted edges collected between begin() and build()
+    private int pending = 0;
+    private int[] pSource = new int[64], pDest = new int[64], pResource = new int[64], pTrips = new int[64];
+    private float[] pVolume = new float[64], pDistance = new float[64];
+
+    void begin() {
+        pending = 0;
+    }
+
+    void add(int sourceRoom, int destRoom, int resourceIndex, int tripCount, double recentTrips, double avgDistance) {
+        if (sourceRoom < 0 || destRoom < 0) return;
+        if (pending == pSource.length) {
+            int n = pending * 2;
+            pSource = Arrays.copyOf(pSource, n);
+            pDest = Arrays.copyOf(pDest, n);
+            pResource = Arrays.copyOf(pResource, n);
+            pTrips = Arrays.copyOf(pTrips, n);
+            pVolume = Arrays.copyOf(pVolume, n);
+            pDistance = Arrays.copyOf(pDistance, n);
+        }
+        pSource[pending] = sourceRoom;
+        pDest[pending] = destRoom;
+        pResource[pending] = resourceIndex;
+        pTrips[pending] = tripCount;
+        pVolume[pending] = (float) recentTrips;
+        pDistance[pending] = (float) avgDistance;
+        pending++;
+    }
+
+    /**
+     * Sort the collected edges into the CSR arrays (counting sort by source, then by destination)
+     */
+    void build() {
+        edgeCount = pending;
+        int maxRoom = -1;
+        for (int i = 0; i < pending; i++) {
+            maxRoom = Math.max(maxRoom, Math.max(pSource[i], pDest[i]));
+        }
+        rooms = maxRoom + 1;
+
+        if (dest.length < edgeCount) {
+            int n = Math.max(edgeCount, dest.length * 2);
+            dest = new int[n];
+            resource = new int[n];
+            trips = new int[n];
+            volume = new float[n];
+            distance = new float[n];
+            inEdges = new int[n];
+        }
+        if (outStart.length < rooms + 1) {
+            outStart = new int[rooms + 1];
+            inStart = new int[rooms + 1];
+        } else {
+            Arrays.fill(outStart, 0);
+            Arrays.fill(inStart, 0);
+        }
+
+        for (int i = 0; i < pending; i++) {
+            outStart[pSource[i] + 1]++;
+            inStart[pDest[i] + 1]++;
+        }
+        for (int r = 0; r < rooms; r++) {
+            outStart[r + 1] += outStart[r];
+            inStart[r + 1] += inStart[r];
+        }
+        // Entries past the last room are stale: close them off
+        for (int r = rooms + 1; r < outStart.length; r++) {
+            outStart[r] = edgeCount;
+            inStart[r] = edgeCount;
+        }
+
+        int[] fill = Arrays.copyOf(outStart, Math.max(rooms, 1));
+        for (int i = 0; i < pending; i++) {
+            int e = fill[pSource[i]]++;
+            dest[e] = pDest[i];
+            resource[e] = pResource[i];
+            trips[e] = pTrips[i];
+            volume[e] = pVolume[i];
+            distance[e] = pDistance[i];
+        }
+        fill = Arrays.copyOf(inStart, Math.max(rooms, 1));
+        for (int e = 0; e < edgeCount; e++) {
+            inEdges[fill[dest[e]]++] = e;
+        }
+    }
+
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return true if haulers were seen taking the resource out of the room
+     */
+    boolean ships(int room, int resourceIndex) {
+        if (room < 0 || room >= rooms) return false;
+        for (int e = outStart[room]; e < outStart[room + 1]; e++) {
+            if (resource[e] == resourceIndex) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if haulers were seen delivering the resource to the room
+     */
+    boolean receives(int room, int resourceIndex) {
+        if (room < 0 || room >= rooms) return false;
+        for (int k = inStart[room]; k < inStart[room + 1]; k++) {
+            if (resource[inEdges[k]] == resourceIndex) return true;
+        }
+        return false;
+    }
+
+    int totalTrips() {
+        int total = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            total += trips[e];
+        }
+        return total;
+    }
+
+    double totalVolume() {
+        double total = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            total += volume[e];
+        }
+        return total;
+    }
+
+    /**
+     * Trip-weighted average observed distance in tiles
+     */
+    double averageDistance() {
+        double weighted = 0;
+        int total = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            weighted += (double) distance[e] * trips[e];
+            total += trips[e];
+        }
+        return total > 0 ? weighted / total : 0;
+    }
+}
@@ -0,0 +1,109 @@
+package moddy.resflow.overlay;
+
+import snake2d.util.datatypes.DIR;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable rasterisation of a {@link FlowPath}: every tile on its segments (Bresenham) in path
+ * order, each with the direction of the segment it was first reached on. Gives O(1) on-path and
+ * direction lookups while rendering, and lets trunk bundling walk a path tile by tile.
+ * Shared between connections on the same route, like the path itself.
+ */
+final class PathTiles {
+
+    static final PathTiles EMPTY = new PathTiles(new long[0], new DIR[0], Collections.emptyMap());
+
+    private final long[] order;      // Tile keys in path order, each once
+    private final DIR[] dirs;        // Direction at order[i]
+    private final Map<Long, DIR> byTile;
+
+    private PathTiles(long[] order, DIR[] dirs, Map<Long, DIR> byTile) {
+        this.order = order;
+        this.dirs = dirs;
+        this.byTile = byTile;
+    }
+
+    static PathTiles of(FlowPath path) {
+        Map<Long, DIR> byTile = new HashMap<>();
+        long[] order = new long[16];
+        DIR[] dirs = new DIR[16];
+        int n = 0;
+
+        for (int i = 0; i < path.size() - 1; i++) {
+            int x1 = path.x(i), y1 = path.y(i);
+            int x2 = path.x(i + 1), y2 = path.y(i + 1);
+            DIR dir = DIR.get(x2 - x1, y2 - y1);
+            if (dir == null) dir = DIR.N;
+
+            int dx = Math.abs(x2 - x1);
+            int dy = Math.abs(y2 - y1);
+            int sx = x1 < x2 ? 1 : -1;
+            int sy = y1 < y2 ? 1 : -1;
+            int err = dx - dy;
+
+            int x = x1, y = y1;
+            while (true) {
+                long key = key(x, y);
+                if (byTile.putIfAbsent(key, dir) == null) {
+                    if (n == order.length) {
+                        order = Arrays.copyOf(order, n * 2);
+                        dirs = Arrays.copyOf(dirs, n * 2);
+                    }
+                    order[n] = key;
+                    dirs[n] = dir;
+                    n++;
+                }
+
+                if (x == x2 && y == y2) break;
+
+                int e2 = 2 * err;
+                if (e2 > -dy) {
+                    err -= dy;
+                    x += sx;
+                }
+                if (e2 < dx) {
+                    err += dx;
+                    y += sy;
+                }
+            }
+        }
+        return new PathTiles(Arrays.copyOf(order, n), Arrays.copyOf(dirs, n),
+            Collections.unmodifiableMap(byTile));
+    }
+
+    static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    int size() {
+        return order.length;
+    }
+
+    long tile(int i) {
+        return order[i];
+    }
+
+    DIR dir(int i) {
+        return dirs[i];
+    }
+
+    boolean contains(long tileKey) {
+        return byTile.containsKey(tileKey);
+    }
+
+    /**
+     * @return direction of the path at the tile, or null if the tile is not on the path
+     */
+    DIR dirAt(long tileKey) {
+        return byTile.get(tileKey);
+    }
+
+    Set<Long> tiles() {
+        return byTile.keySet();
+    }
+}
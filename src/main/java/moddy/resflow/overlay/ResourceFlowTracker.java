@@ -7,8 +7,10 @@ import init.sprite.SPRITES;
 import init.sprite.UI.UI;
 import lombok.Setter;
 import moddy.resflow.ModConfig;
+import moddy.resflow.analysis.HaulEventQueue;
 import moddy.resflow.analysis.ResourceFlowAnalyzer;
 import moddy.resflow.analysis.ResourceFlowData;
+import moddy.resflow.ui.FilterContext;
 import moddy.resflow.ui.HorizontalResourcePanel;
 import settlement.entity.humanoid.Humanoid;
 import settlement.main.SETT;
@@ -24,7 +26,6 @@ import snake2d.util.datatypes.DIR;
 import snake2d.util.datatypes.RECTANGLE;
 import util.rendering.RenderData;
 import util.rendering.RenderData.RenderIterator;
-import view.keyboard.KEYS;
 import view.main.VIEW;
 
 import java.util.*;
@@ -61,8 +62,14 @@ public class ResourceFlowTracker extends Addable {
     private static final COLOR[] HEAT_GRADIENT = new COLOR[21];
     private static final CharSequence ¤¤name = "Resource Flow";
     private static final CharSequence ¤¤desc = "Shows resource flow with trends. Green=production, Red=consumption, Blue=storage. Arrows=haul paths.";
-    // Throttle path updates: max requests per update tick
-    private static final int MAX_PATH_UPDATES_PER_FRAME = 1; // Reduced from 2
+    // Component paths change rarely: refresh a connection's path at most this often (game seconds)
+    private static final double PATH_REFRESH_INTERVAL = 60.0;
+    // Frame times above this are stalls, not load, and are left out of the frame average
+    private static final double MAX_FRAME_SAMPLE_MS = 250.0;
+    // Wall-clock interval for re-prioritising stale paths (camera moves, volumes change)
+    private static final long PATH_SCAN_INTERVAL_NANOS = 500_000_000L;
+    // Shared runs shorter than this stay as cycled overlapping paths instead of becoming a trunk
+    private static final int MIN_TRUNK_TILES = 8;
 
     static {
         for (int i = 0; i <= 20; i++) {
@@ -89,27 +96,71 @@ public class ResourceFlowTracker extends Addable {
 
     // Particle system for flow visualization
     private final FlowParticleSystem particleSystem = new FlowParticleSystem();
-    // Room type classification cache (keyed by room instance index)
-    private final Map<Integer, RoomFlowType> roomTypeCache = new HashMap<>();
-    private final Set<RESOURCE> previousSelectedResources = new HashSet<>();
-    // Flow connections between rooms (source room index -> list of dest room indices)
+    // Room type classification cache, indexed by room instance index (RoomFlowType ordinal + 1, 0 = unclassified)
+    private byte[] roomTypeCache = new byte[0];
+    private int classifiedRoomCount = 0;
+    // Flow connections between rooms, one per (source room, dest room) pair carrying one or more resources
     private final List<FlowConnection> flowConnections = new ArrayList<>();
+    private final Map<Long, FlowConnection> connectionsByPair = new HashMap<>();
     // Performance optimization: map of tile to connections passing through it
     private final Map<Long, List<FlowConnection>> tilePathMap = new HashMap<>();
-    // Persistent flow map: key="srcIdx->dstIdx:resIdx", value=FlowConnectionData
-    private final Map<String, FlowConnectionData> persistentFlows = new HashMap<>();
+    // Tiles bundled into trunk corridors (rendered once for all connections sharing them)
+    private final Map<Long, FlowTrunk> tileTrunkMap = new HashMap<>();
+    private int trunkCount = 0;
+    private boolean trunksStale = false;
+    // Connection bounding boxes by coarse grid cell, for viewport queries
+    private final BoxGrid<FlowConnection> connectionGrid = new BoxGrid<>();
+    private final List<FlowConnection> gridQuery = new ArrayList<>();
+    // Visible tile rectangle, refreshed at the start of each update
+    private int viewX1, viewY1, viewX2, viewY2;
+    // Stream lookup for hauler events: exact route first, then by dest or source room + resource
+    private final Map<Long, FlowStream> streamsByRoute = new HashMap<>();
+    private final Map<Long, FlowStream> streamsByDest = new HashMap<>();
+    private final Map<Long, FlowStream> streamsBySource = new HashMap<>();
+    // Room index -> connections touching it (CSR: roomConnections[roomConnStart[r] .. roomConnStart[r + 1]])
+    private int[] roomConnStart = new int[1];
+    private FlowConnection[] roomConnections = new FlowConnection[0];
+    // Connections touching the Shift-hovered room, recomputed only when that room or the connections change
+    private final List<FlowConnection> hoveredConnections = new ArrayList<>();
+    private RoomInstance filteredRoom = null;
+    // Connections waiting for a path request, highest priority (on screen, busy, old) first
+    private final PriorityQueue<FlowConnection> pathQueue =
+        new PriorityQueue<>((a, b) -> Double.compare(b.pathPriority, a.pathPriority));
+    private long lastPathScanNanos = 0;
+    private boolean pathScanNeeded = true;
+    // Extracted paths by route endpoints, shared between connections and resources on the same route
+    private final FlowPathCache pathCache = new FlowPathCache();
+    // Routes reconstructed from sampled hauler positions, preferred over pathfinder paths
+    private final SampledRoutes sampledRoutes = new SampledRoutes();
+    private final HaulEventQueue.Sink haulEventSink = this::onHaulEvent;
+    // Persistent flow map: key=FlowParticleSystem.makeConnectionKey(src, dst, res), value=FlowConnectionData
+    private final Map<Long, FlowConnectionData> persistentFlows = new HashMap<>();
+    // Persistent flows by expiry (8s ticks, 512s span covers the 300s activity window)
+    private final ExpiryWheel<FlowConnectionData> flowExpiry =
+        new ExpiryWheel<>(8.0, 64, FlowConnectionData::expiryTime);
+    // Routes haulers were actually seen completing, rebuilt from the observed persistent flows
+    private final ObservedRouteGraph routeGraph = new ObservedRouteGraph();
     private final List<ActiveTransport> activeTransports = new ArrayList<>();
     private final PulsedOpacity pulsedOpacity = new PulsedOpacity();
+    // Scratch colour for room tiles (one per tile, so never allocated per tile)
+    private final ColorImp roomTileColor = new ColorImp();
     // Analyzer for persistent flow tracking
     @Setter
     private ResourceFlowAnalyzer analyzer;
     private double timeSinceLastUpdate = 0.0;
     private double timeSinceTransportUpdate = 0.0;
+    // Inputs of the last rebuild; while they are unchanged the periodic rebuild is skipped
+    private static final int MAX_SKIPPED_REBUILDS = 10;
+    private long lastRebuildFingerprint = 0;
+    private int skippedRebuilds = 0;
+    private double nextFlowExpiry = Double.MAX_VALUE;
+    // Smoothed wall-clock time between updates, drives particle budget scaling
+    private long lastUpdateNanos = 0;
+    private double avgFrameMs = 0.0;
     // Currently hovered room (for path highlighting)
     private RoomInstance hoveredRoom = null;
     // Previous filter state (to detect changes and clear particles)
-    private RESOURCE previousHoveredResource = null;
-    private RoomInstance previousHoveredRoom = null;
+    private int previousFilterVersion = 0;
 
     public ResourceFlowTracker() {
         super(
@@ -141,89 +192,110 @@ public class ResourceFlowTracker extends Addable {
     }
 
     private RESOURCE getHoveredResource() {
-        return HorizontalResourcePanel.currentlyHoveredResource;
+        return FilterContext.current().hovered;
     }
 
     /**
      * Check if a resource should be displayed (either selected or hovered)
-     * This includes resource chain expansion when enabled
+     * This includes resource chain expansion when enabled (precomputed once per frame)
      */
     private boolean shouldDisplayResource(RESOURCE res) {
-        if (res == null) return false;
-
-        // If resources are locked, show locked resources + their chains
-        if (!HorizontalResourcePanel.selectedResources.isEmpty()) {
-            // Get the effective set (includes chain dependencies if enabled)
-            java.util.Set<RESOURCE> effectiveSet = HorizontalResourcePanel.getEffectiveSelectedResources();
-            return effectiveSet.contains(res);
-        }
-        // Otherwise show hovered resource + its chain, or all if nothing hovered
-        RESOURCE hovered = getHoveredResource();
-        if (hovered == null) {
-            return true;  // Show all
-        }
-
-        // Check if this resource is in the hovered resource's chain
-        if (HorizontalResourcePanel.showResourceChains) {
-            java.util.Set<RESOURCE> hoveredChain = new java.util.HashSet<>();
-            hoveredChain.add(hovered);
-            java.util.Set<RESOURCE> expandedChain = HorizontalResourcePanel.getExpandedResourceChain(hoveredChain);
-            return expandedChain.contains(res);
-        }
+        return FilterContext.current().shows(res);
+    }
 
-        return hovered == res;
+    /**
+     * Connections shown under the room filter: the hovered room's connections while Shift is held, else all
+     */
+    private List<FlowConnection> roomFilteredConnections() {
+        return hoveredRoom != null ? hoveredConnections : flowConnections;
     }
 
     /**
-     * Check if a flow connection is related to the currently hovered room
+     * Recompute the hovered room's connection set from the room index
      */
-    private boolean isHoveredConnection(FlowConnection conn) {
-        if (hoveredRoom == null) return false;
-        int idx = hoveredRoom.index();
-        return conn.sourceRoomIdx == idx || conn.destRoomIdx == idx;
+    private void applyRoomFilter() {
+        for (FlowConnection conn : hoveredConnections) {
+            conn.inHoveredRoom = false;
+        }
+        hoveredConnections.clear();
+        filteredRoom = hoveredRoom;
+        if (hoveredRoom == null) return;
+
+        int room = hoveredRoom.index();
+        if (room < 0 || room + 1 >= roomConnStart.length) return;
+        for (int k = roomConnStart[room]; k < roomConnStart[room + 1]; k++) {
+            FlowConnection conn = roomConnections[k];
+            if (conn.inHoveredRoom) continue;
+            conn.inHoveredRoom = true;
+            hoveredConnections.add(conn);
+        }
     }
 
     /**
      * Update tracker state - called from game loop
      */
     public void update(double ds) {
-        if (!added()) return;
+        if (!added()) {
+            // The first frame after re-enabling must not measure the time spent switched off
+            lastUpdateNanos = 0;
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (lastUpdateNanos != 0) {
+            double frameMs = (now - lastUpdateNanos) / 1_000_000.0;
+            // Pauses, loading and alt-tab are not frame cost
+            if (frameMs <= MAX_FRAME_SAMPLE_MS) {
+                avgFrameMs = avgFrameMs == 0.0 ? frameMs : avgFrameMs * 0.9 + frameMs * 0.1;
+            }
+        }
+        lastUpdateNanos = now;
+
+        RECTANGLE view = VIEW.s().getWindow().pixels();
+        viewX1 = view.x1() / C.TILE_SIZE - 1;
+        viewY1 = view.y1() / C.TILE_SIZE - 1;
+        viewX2 = view.x2() / C.TILE_SIZE + 1;
+        viewY2 = view.y2() / C.TILE_SIZE + 1;
 
         if (analyzer != null) {
             analyzer.update(ds);
         }
 
-        // Update particle system
-        particleSystem.update(ds);
+        // Update particle system (particles on off-screen paths only advance)
+        particleSystem.update(ds, viewX1, viewY1, viewX2, viewY2);
 
-        // Track hovered room for path filtering/highlighting - only when Shift is held
-        snake2d.util.datatypes.COORDINATE mouseTile = VIEW.s().getWindow().tile();
-        Room room = SETT.ROOMS().map.get(mouseTile.x(), mouseTile.y());
-        if (room instanceof RoomInstance instance && KEYS.MAIN().UNDO.isPressed()) {
-            hoveredRoom = instance;
-        } else {
-            hoveredRoom = null;
-        }
+        // Hovered room for path filtering/highlighting (Shift held), from the shared filter snapshot
+        FilterContext filter = FilterContext.current();
+        hoveredRoom = filter.hoveredRoom;
 
         // Detect filter changes and clear particles if needed
-        RESOURCE currentHovered = getHoveredResource();
-        boolean resourceFilterChanged = currentHovered != previousHoveredResource ||
-            !previousSelectedResources.equals(HorizontalResourcePanel.selectedResources);
-        boolean roomFilterChanged = hoveredRoom != previousHoveredRoom;
-
-        if (resourceFilterChanged || roomFilterChanged) {
+        if (filter.version != previousFilterVersion) {
             particleSystem.clear();
-            previousHoveredResource = currentHovered;
-            previousSelectedResources.clear();
-            previousSelectedResources.addAll(HorizontalResourcePanel.selectedResources);
-            previousHoveredRoom = hoveredRoom;
+            // Every slot was released, so streams resolve fresh ones
+            for (FlowConnection conn : flowConnections) {
+                for (FlowStream stream : conn.streams) {
+                    stream.particleSlot = -1;
+                }
+            }
+            previousFilterVersion = filter.version;
+            if (hoveredRoom != filteredRoom) {
+                applyRoomFilter();
+            }
+            // Visible set changed, so re-split the budget instead of waiting for the next rebuild
+            allocateParticleBudget(analyzer != null ? analyzer.getData().getGameTime() : VIEW.renderSecond());
         }
 
         timeSinceLastUpdate += ds;
         timeSinceTransportUpdate += ds;
 
-        if (roomTypeCache.isEmpty() || timeSinceLastUpdate >= cacheUpdateInterval()) {
-            rebuildCache();
+        if (classifiedRoomCount == 0 || timeSinceLastUpdate >= cacheUpdateInterval()) {
+            if (classifiedRoomCount != 0 && canSkipRebuild()) {
+                // Nothing the rebuild reads has changed: only refresh the moving haulers
+                activeTransports.clear();
+                scanActiveTransports(getHoveredResource());
+            } else {
+                rebuildCache();
+            }
             timeSinceLastUpdate = 0.0;
             timeSinceTransportUpdate = 0.0;
         } else if (timeSinceTransportUpdate >= transportUpdateInterval()) {
@@ -232,39 +304,91 @@ public class ResourceFlowTracker extends Addable {
             timeSinceTransportUpdate = 0.0;
         }
 
-        // Update paths for flow connections (throttled to max N per update)
-        updateFlowPaths();
+        // Update paths for flow connections (within a per-frame time budget)
+        updateFlowPaths(ds);
 
-        // Spawn particles for active connections
-        spawnParticlesForActiveFlows();
+        // Spawn particles for hauler events observed since the last update
+        drainHaulEvents();
     }
 
     /**
      * Update paths for flow connections (called from update loop, not render loop!)
+     * Spends up to the path time budget on the highest-priority stale connections.
      */
-    private void updateFlowPaths() {
+    private void updateFlowPaths(double ds) {
         if (flowConnections.isEmpty()) return;
 
         double currentTime = analyzer != null ? analyzer.getData().getGameTime() : VIEW.renderSecond();
-        int updatesThisFrame = 0;
+        long now = System.nanoTime();
+        if (pathScanNeeded || now - lastPathScanNanos >= PATH_SCAN_INTERVAL_NANOS) {
+            schedulePathUpdates(currentTime);
+            lastPathScanNanos = now;
+            pathScanNeeded = false;
+        }
+        if (pathQueue.isEmpty()) return;
+
+        // The budget covers path requests only, so start the clock after re-prioritising
+        now = System.nanoTime();
+        long budget = pathBudgetNanos(ds);
         boolean mapNeedsRebuild = false;
+        boolean newPaths = false;
+        while (!pathQueue.isEmpty()) {
+            FlowConnection conn = pathQueue.poll();
+            if (!conn.needsPath(currentTime)) continue;
 
-        for (FlowConnection conn : flowConnections) {
-            if (updatesThisFrame >= MAX_PATH_UPDATES_PER_FRAME) {
-                break; // Hit throttle limit, remaining paths update next frame
-            }
+            boolean hadPath = !conn.path.isEmpty();
+            conn.updatePath(currentTime, pathCache, sampledRoutes);
+            mapNeedsRebuild = true;
+            newPaths |= !hadPath;
 
-            boolean needsUpdate = (currentTime - conn.lastPathUpdate >= 60.0);
-            if (needsUpdate) {
-                conn.updatePath(currentTime);
-                updatesThisFrame++;
-                mapNeedsRebuild = true;
-            }
+            // Always make progress, then stop once the budget is spent
+            if (System.nanoTime() - now >= budget) break;
         }
 
         if (mapNeedsRebuild) {
             rebuildTilePathMap();
         }
+        if (trunksStale && pathQueue.isEmpty()) {
+            bundleTrunks();
+        }
+        if (newPaths) {
+            // Connections that just got their first path can now receive particles
+            allocateParticleBudget(currentTime);
+        }
+    }
+
+    /**
+     * Re-prioritise every connection that needs a path: on-screen first, then by observed
+     * volume, then by age (never-pathed connections count as oldest)
+     */
+    private void schedulePathUpdates(double currentTime) {
+        pathQueue.clear();
+
+        for (FlowConnection conn : flowConnections) {
+            if (!conn.needsPath(currentTime)) continue;
+
+            boolean onScreen = conn.overlaps(viewX1, viewY1, viewX2, viewY2);
+            double age = conn.pathBuilt ? currentTime - conn.lastPathUpdate : 10 * PATH_REFRESH_INTERVAL;
+
+            conn.pathPriority = (onScreen ? 1000.0 : 0.0)
+                + 10.0 * Math.log1p(conn.observedVolume(currentTime))
+                + Math.min(age, 10 * PATH_REFRESH_INTERVAL) / PATH_REFRESH_INTERVAL;
+            pathQueue.add(conn);
+        }
+    }
+
+    /**
+     * Per-frame path request budget: the configured budget, more while paused (ds is 0),
+     * scaled down like the particle budget while frames are slow
+     */
+    private long pathBudgetNanos(double ds) {
+        double us = ModConfig.FLOW_PATH_BUDGET_US;
+        if (ds <= 0) {
+            us *= 4;
+        } else if (avgFrameMs > ModConfig.FLOW_PARTICLE_TARGET_FRAME_MS) {
+            us *= Math.max(0.25, ModConfig.FLOW_PARTICLE_TARGET_FRAME_MS / avgFrameMs);
+        }
+        return (long) (us * 1000);
     }
 
     /**
@@ -272,71 +396,328 @@ public class ResourceFlowTracker extends Addable {
      */
     private void rebuildTilePathMap() {
         tilePathMap.clear();
+        connectionGrid.clear();
         for (FlowConnection conn : flowConnections) {
-            for (long tileKey : conn.pathTileSet) {
+            for (long tileKey : conn.pathTiles.tiles()) {
                 tilePathMap.computeIfAbsent(tileKey, k -> new ArrayList<>(2)).add(conn);
             }
+            connectionGrid.add(conn, conn.boxX1, conn.boxY1, conn.boxX2, conn.boxY2);
+        }
+        connectionGrid.build();
+        // Trunks are re-bundled once the current batch of path updates is done
+        trunksStale = true;
+    }
+
+    /**
+     * Bundle runs of tiles shared by the same connections, all heading the same way, into trunks.
+     * Walks each path's consecutive tiles (most important connections first) and splits a run
+     * wherever the set of connections on the tile changes or they stop heading the same way. Runs shorter than
+     * MIN_TRUNK_TILES are left to the overlapping-path rendering.
+     * Cost is O(path tiles x connections per tile), with directions read from the rasterised paths.
+     */
+    private void bundleTrunks() {
+        tileTrunkMap.clear();
+        trunkCount = 0;
+        trunksStale = false;
+        if (!ModConfig.FLOW_TRUNK_BUNDLING) return;
+
+        List<Long> run = new ArrayList<>();
+        for (FlowConnection conn : flowConnections) {
+            PathTiles tiles = conn.pathTiles;
+            List<FlowConnection> runMembers = null;
+            for (int i = 0; i < tiles.size(); i++) {
+                long tileKey = tiles.tile(i);
+                List<FlowConnection> conns = tilePathMap.get(tileKey);
+                boolean shared = conns != null && conns.size() >= 2 && !tileTrunkMap.containsKey(tileKey)
+                    && aligned(conns, tileKey, tiles.dir(i));
+
+                // Split when the tile leaves the run's connection set
+                if (runMembers != null && (!shared || !conns.equals(runMembers))) {
+                    addTrunk(runMembers, run);
+                    runMembers = null;
+                }
+                if (!shared) continue;
+                if (runMembers == null) {
+                    runMembers = conns;
+                    run.clear();
+                }
+                run.add(tileKey);
+            }
+            if (runMembers != null) {
+                addTrunk(runMembers, run);
+            }
+        }
+    }
+
+    /**
+     * @return true if every connection on the tile runs in the given direction
+     */
+    private static boolean aligned(List<FlowConnection> conns, long tileKey, DIR dir) {
+        for (FlowConnection conn : conns) {
+            if (conn.pathTiles.dirAt(tileKey) != dir) return false;
+        }
+        return true;
+    }
+
+    private void addTrunk(List<FlowConnection> members, List<Long> run) {
+        if (run.size() < MIN_TRUNK_TILES) return;
+        FlowTrunk trunk = new FlowTrunk(members);
+        for (long tileKey : run) {
+            tileTrunkMap.put(tileKey, trunk);
         }
+        trunkCount++;
     }
 
     /**
-     * Spawn particles for active flow connections based on actual flow volume
-     * Called each update cycle to create living visualization
+     * Drain hauler pickup/completion events from the analyzer.
+     * Pickups spawn one particle on the owning connection; completions count as trips on its flow data.
+     * Cost scales with observed traffic, not with the number of connections.
      */
-    private void spawnParticlesForActiveFlows() {
-        if (!ModConfig.FLOW_PARTICLE_ENABLED || analyzer == null) {
+    private void drainHaulEvents() {
+        if (analyzer == null) return;
+        analyzer.getHaulEvents().drain(haulEventSink);
+    }
+
+    private void onHaulEvent(byte type, int resourceIndex, int sourceRoom, int destRoom,
+                             float distance, int[] trail, int order, int batch) {
+        RESOURCE resource = RESOURCES.ALL().get(resourceIndex);
+        FlowStream stream = findStreamForHaul(sourceRoom, destRoom, resource);
+
+        if (type == HaulEventQueue.COMPLETE) {
+            double time = analyzer.getData().getGameTime();
+            FlowConnectionData observed = recordObservedTrip(sourceRoom, destRoom, resource, distance, time);
+            if (observed != null) {
+                recordRouteSamples(observed, trail, time);
+            }
+            // Until the observed route gets its own connection, the trip counts on the one drawn for it
+            if (stream != null && stream.flowData != observed) {
+                stream.flowData.recordTrip(time, distance);
+            }
             return;
         }
+        if (stream == null) return;
 
-        // Only spawn particles for connections with valid paths
-        for (FlowConnection conn : flowConnections) {
-            if (conn.pathTiles.isEmpty()) {
-                continue;
+        FlowConnection conn = stream.connection;
+        if (!ModConfig.FLOW_PARTICLE_ENABLED || conn.path.isEmpty()) return;
+
+        // Skip if this stream is filtered out (not related to selected/hovered resources)
+        if (!shouldDisplayResource(stream.resource)) return;
+
+        // Skip if this connection is not related to hovered room (when shift is held)
+        if (hoveredRoom != null && !conn.inHoveredRoom) return;
+
+        // Skip connections below the level-of-detail cut for the current zoom
+        if (conn.lodRank >= lodLimit(VIEW.s().getWindow().zoomout())) return;
+
+        // Skip connections entirely off screen
+        if (!conn.overlaps(viewX1, viewY1, viewX2, viewY2)) return;
+
+        // Resolve the particle slot once per stream, then share the connection's path
+        int slot = particleSlot(conn, stream);
+
+        ResourceFlowData.ResourceFlowStats stats = analyzer.getData().getStats(stream.resource);
+        double flowVolume = calculateFlowVolumeForStream(stream, stats);
+
+        // Events arrive in batches once per analyzer scan; stagger them across the scan interval
+        double delay = batch > 1 ? order * ModConfig.FLOW_ANALYZER_UPDATE_INTERVAL / batch : 0.0;
+
+        particleSystem.spawnForConnection(slot, conn.path,
+            mapFlowTypeToPathType(stream.flowType), flowVolume, delay);
+    }
+
+    /**
+     * The stream's particle slot, resolved again if it was never set or no longer belongs to this route
+     */
+    private int particleSlot(FlowConnection conn, FlowStream stream) {
+        long key = FlowParticleSystem.makeConnectionKey(conn.sourceRoomIdx, conn.destRoomIdx, stream.resource);
+        if (!particleSystem.ownsSlot(stream.particleSlot, key)) {
+            stream.particleSlot = particleSystem.connectionSlot(conn.sourceRoomIdx, conn.destRoomIdx, stream.resource);
+        }
+        return stream.particleSlot;
+    }
+
+    /**
+     * Release the particle slots of streams that did not survive a rebuild.
+     * Must run before {@link #rebuildConnectionIndex()}, while streamsByRoute still holds the previous streams.
+     */
+    private void releaseDroppedSlots() {
+        for (Map.Entry<Long, FlowStream> entry : streamsByRoute.entrySet()) {
+            FlowStream previous = entry.getValue();
+            if (particleSystem.ownsSlot(previous.particleSlot, entry.getKey())) {
+                particleSystem.releaseSlot(previous.particleSlot);
             }
+            previous.particleSlot = -1;
+        }
+    }
+
+    /**
+     * Find the stream a haul belongs to: exact route, else the stream delivering that
+     * resource to the destination room, else the one leaving the source room
+     */
+    private FlowStream findStreamForHaul(int sourceRoom, int destRoom, RESOURCE resource) {
+        if (resource == null) return null;
+        if (sourceRoom >= 0 && destRoom >= 0) {
+            FlowStream stream = streamsByRoute.get(FlowParticleSystem.makeConnectionKey(sourceRoom, destRoom, resource));
+            if (stream != null) return stream;
+        }
+        if (destRoom >= 0) {
+            FlowStream stream = streamsByDest.get(roomResourceKey(destRoom, resource));
+            if (stream != null) return stream;
+        }
+        if (sourceRoom >= 0) {
+            return streamsBySource.get(roomResourceKey(sourceRoom, resource));
+        }
+        return null;
+    }
 
-            // Skip if this connection is filtered out (not related to selected/hovered resources)
-            if (!shouldDisplayResource(conn.resource)) {
-                continue;
+    private static long roomResourceKey(int roomIdx, RESOURCE resource) {
+        return ((long) roomIdx << 16) | (resource.index() & 0xFFFF);
+    }
+
+    private static long roomPairKey(int sourceRoomIdx, int destRoomIdx) {
+        return ((long) sourceRoomIdx << 32) | (destRoomIdx & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Rebuild the hauler event lookup and the room -> connections index
+     * (connections only change on cache rebuild)
+     */
+    private void rebuildConnectionIndex() {
+        connectionsByPair.clear();
+        streamsByRoute.clear();
+        streamsByDest.clear();
+        streamsBySource.clear();
+        int maxRoom = -1;
+        for (FlowConnection conn : flowConnections) {
+            connectionsByPair.put(roomPairKey(conn.sourceRoomIdx, conn.destRoomIdx), conn);
+            for (FlowStream stream : conn.streams) {
+                streamsByRoute.put(FlowParticleSystem.makeConnectionKey(conn.sourceRoomIdx, conn.destRoomIdx, stream.resource), stream);
+                streamsByDest.putIfAbsent(roomResourceKey(conn.destRoomIdx, stream.resource), stream);
+                streamsBySource.putIfAbsent(roomResourceKey(conn.sourceRoomIdx, stream.resource), stream);
             }
+            maxRoom = Math.max(maxRoom, Math.max(conn.sourceRoomIdx, conn.destRoomIdx));
+        }
 
-            // Skip if this connection is not related to hovered room (when shift is held)
-            if (hoveredRoom != null && !isHoveredConnection(conn)) {
-                continue;
+        // Counting sort of connection endpoints by room
+        int rooms = maxRoom + 1;
+        if (roomConnStart.length < rooms + 1) {
+            roomConnStart = new int[rooms + 1];
+        } else {
+            Arrays.fill(roomConnStart, 0);
+        }
+        for (FlowConnection conn : flowConnections) {
+            if (conn.sourceRoomIdx >= 0) roomConnStart[conn.sourceRoomIdx + 1]++;
+            if (conn.destRoomIdx >= 0 && conn.destRoomIdx != conn.sourceRoomIdx) roomConnStart[conn.destRoomIdx + 1]++;
+        }
+        for (int i = 0; i < rooms; i++) {
+            roomConnStart[i + 1] += roomConnStart[i];
+        }
+        int total = rooms > 0 ? roomConnStart[rooms] : 0;
+        if (roomConnections.length < total) {
+            roomConnections = new FlowConnection[total];
+        }
+        int[] fill = Arrays.copyOf(roomConnStart, rooms);
+        for (FlowConnection conn : flowConnections) {
+            if (conn.sourceRoomIdx >= 0) roomConnections[fill[conn.sourceRoomIdx]++] = conn;
+            if (conn.destRoomIdx >= 0 && conn.destRoomIdx != conn.sourceRoomIdx) roomConnections[fill[conn.destRoomIdx]++] = conn;
+        }
+        // Entries past the last room are stale: the lookup bound is roomConnStart[rooms]
+        for (int i = rooms + 1; i < roomConnStart.length; i++) {
+            roomConnStart[i] = total;
+        }
+
+        // Connections were rebuilt, so the hovered room's set must be too
+        applyRoomFilter();
+    }
+
+    /**
+     * Order connections by importance (observed volume, total trips, flow type) and record each
+     * one's rank for the zoom level-of-detail cut. Runs once per cache rebuild, before the tile map
+     * is built, so every tile's connection list is in rank order too.
+     */
+    private void rankConnections() {
+        for (FlowConnection conn : flowConnections) {
+            double importance = 0;
+            for (FlowStream stream : conn.streams) {
+                importance += flowTypeWeight(stream.flowType)
+                    * (1.0 + stream.weight + 0.25 * Math.log1p(stream.flowData.tripCount));
             }
+            conn.importance = importance;
+        }
+        flowConnections.sort((a, b) -> Double.compare(b.importance, a.importance));
+        for (int i = 0; i < flowConnections.size(); i++) {
+            flowConnections.get(i).lodRank = i;
+        }
+    }
 
-            // Calculate flow volume from analyzer data
-            ResourceFlowData.ResourceFlowStats stats = analyzer.getData().getStats(conn.resource);
-            double flowVolume = calculateFlowVolumeForConnection(conn, stats);
+    /**
+     * Number of top-ranked connections drawn at a zoom level (all at close zoom)
+     */
+    private static int lodLimit(int zoomLevel) {
+        if (zoomLevel >= 3) return ModConfig.FLOW_LOD_FAR_LIMIT;
+        if (zoomLevel == 2) return ModConfig.FLOW_LOD_MID_LIMIT;
+        return Integer.MAX_VALUE;
+    }
 
-            // Flow volume now has minimum of 1.0, so no need to skip
-            // (All visible connections will spawn particles)
+    /**
+     * @return how many leading connections of a rank-ordered tile list pass the LOD cut
+     */
+    private static int lodVisibleCount(List<FlowConnection> conns, int limit) {
+        int n = 0;
+        while (n < conns.size() && conns.get(n).lodRank < limit) n++;
+        return n;
+    }
 
-            // Determine flow path type for color coding
-            ResourceFlowData.FlowPathType pathType = mapFlowTypeToPathType(conn.flowType);
+    /**
+     * Split the particle budget across visible connections (once per cache rebuild).
+     * Each connection gets the configured floor, the rest is shared in proportion to observed
+     * trips. The whole budget shrinks while frame time is above the configured target.
+     */
+    private void allocateParticleBudget(double currentTime) {
+        double loadScale = 1.0;
+        if (avgFrameMs > ModConfig.FLOW_PARTICLE_TARGET_FRAME_MS) {
+            loadScale = Math.max(0.25, ModConfig.FLOW_PARTICLE_TARGET_FRAME_MS / avgFrameMs);
+        }
+        int budget = (int) (ModConfig.FLOW_PARTICLE_BUDGET * loadScale);
+        particleSystem.resetBudgets(budget);
 
-            // Convert path tiles to particle path tiles
-            List<FlowParticle.PathTile> particlePath = new ArrayList<>(conn.pathTiles.size());
-            for (FlowConnection.PathTile tile : conn.pathTiles) {
-                particlePath.add(new FlowParticle.PathTile(tile.x(), tile.y()));
+        // First pass: count visible streams and total observed volume
+        int visible = 0;
+        double totalWeight = 0;
+        List<FlowConnection> candidates = roomFilteredConnections();
+        for (FlowConnection conn : candidates) {
+            if (conn.path.isEmpty() || (hoveredRoom != null && !conn.inHoveredRoom)) continue;
+            for (FlowStream stream : conn.streams) {
+                if (!shouldDisplayResource(stream.resource)) continue;
+                visible++;
+                totalWeight += stream.observedVolume(currentTime);
             }
+        }
+        if (visible == 0) return;
+
+        int floor = Math.min(ModConfig.FLOW_PARTICLE_MIN_PER_CONNECTION, budget / visible);
+        int remaining = budget - floor * visible;
 
-            // Spawn particle for this connection
-            particleSystem.spawnForConnection(
-                conn.sourceRoomIdx,
-                conn.destRoomIdx,
-                conn.resource,
-                particlePath,
-                pathType,
-                flowVolume
-            );
+        // Second pass: floor plus a volume-weighted share (even share when nothing was observed yet)
+        for (FlowConnection conn : candidates) {
+            if (conn.path.isEmpty() || (hoveredRoom != null && !conn.inHoveredRoom)) continue;
+            for (FlowStream stream : conn.streams) {
+                if (!shouldDisplayResource(stream.resource)) continue;
+                double share = totalWeight > 0 ? stream.observedVolume(currentTime) / totalWeight : 1.0 / visible;
+                particleSystem.setConnectionBudget(particleSlot(conn, stream), floor + (int) (remaining * share));
+            }
         }
+
+        debug("FlowTracker: particle budget " + budget + " over " + visible + " streams" +
+            (loadScale < 1.0 ? " (scaled " + String.format("%.2f", loadScale) + " for " +
+                String.format("%.1f", avgFrameMs) + "ms frames)" : ""));
     }
 
     /**
-     * Calculate flow volume for a specific connection
+     * Calculate flow volume for a specific stream
      * Based on production rate, consumption rate, and active haulers
      */
-    private double calculateFlowVolumeForConnection(FlowConnection conn, ResourceFlowData.ResourceFlowStats stats) {
+    private double calculateFlowVolumeForStream(FlowStream stream, ResourceFlowData.ResourceFlowStats stats) {
         // Base flow volume on production rate (normalized to 1-10 scale)
         // Add a minimum base flow of 1.0 to ensure particles always spawn for visible connections
         double baseFlow = Math.max(1.0, stats.productionRatePerDay / 10.0);
@@ -345,15 +726,19 @@ public class ResourceFlowTracker extends Addable {
         double haulerBoost = 1.0 + (stats.activeHaulers * 0.5);
 
         // Boost based on connection type
-        double typeBoost = switch (conn.flowType) {
+        double typeBoost = flowTypeWeight(stream.flowType);
+
+        return Math.max(1.0, Math.min(10.0, baseFlow * haulerBoost * typeBoost));
+    }
+
+    private static double flowTypeWeight(FlowType flowType) {
+        return switch (flowType) {
             case PRODUCTION_TO_STORAGE -> 1.5;  // Production flows are important
             case STORAGE_TO_CONSUMPTION -> 1.3; // Delivery flows are important
             case PRODUCTION_TO_CONSUMPTION -> 2.0; // Direct flows are most critical
             case STORAGE_TO_STORAGE -> 0.8;     // Redistribution less critical
             default -> 1.0;
         };
-
-        return Math.max(1.0, Math.min(10.0, baseFlow * haulerBoost * typeBoost));
     }
 
     /**
@@ -371,7 +756,7 @@ public class ResourceFlowTracker extends Addable {
 
     @Override
     public void initBelow(RenderData data) {
-        if (roomTypeCache.isEmpty()) {
+        if (classifiedRoomCount == 0) {
             rebuildCache();
         }
     }
@@ -395,10 +780,7 @@ public class ResourceFlowTracker extends Addable {
         long key = FlowConnection.encodeTile(it.tx(), it.ty());
 
         // Use hovered or first selected resource for filtering
-        RESOURCE filter = getHoveredResource();
-        if (filter == null && !HorizontalResourcePanel.selectedResources.isEmpty()) {
-            filter = HorizontalResourcePanel.selectedResources.iterator().next();
-        }
+        RESOURCE filter = FilterContext.current().primary;
 
         float val = analyzer.getData().getTraffic(key, filter);
 
@@ -415,25 +797,19 @@ public class ResourceFlowTracker extends Addable {
         Room room = SETT.ROOMS().map.get(it.tx(), it.ty());
         if (!(room instanceof RoomInstance instance)) return;
 
-        RoomFlowType flowType = roomTypeCache.get(instance.index());
+        RoomFlowType flowType = roomType(instance.index());
         if (flowType == null || flowType == RoomFlowType.NONE) return;
 
-        COLOR baseColor;
-        if (HorizontalResourcePanel.showEfficiencyMode && analyzer != null) {
-            RESOURCE res = getHoveredResource();
-            if (res == null && !HorizontalResourcePanel.selectedResources.isEmpty()) {
-                res = HorizontalResourcePanel.selectedResources.iterator().next();
-            }
-
-            if (res != null) {
-                double efficiency = analyzer.getData().getStats(res).efficiency;
-                // Red (0%) to Green (100%)
-                baseColor = new ColorImp().interpolate(COLOR_TREND_DOWN, COLOR_TREND_UP, efficiency);
-            } else {
-                baseColor = getColorForType(flowType);
-            }
+        // Hovered or first selected resource (efficiency mode colours by its efficiency)
+        RESOURCE res = HorizontalResourcePanel.showEfficiencyMode && analyzer != null
+            ? FilterContext.current().primary : null;
+        ColorImp pulsedColor = roomTileColor;
+        if (res != null) {
+            double efficiency = analyzer.getData().getStats(res).efficiency;
+            // Red (0%) to Green (100%)
+            pulsedColor.interpolate(COLOR_TREND_DOWN, COLOR_TREND_UP, efficiency);
         } else {
-            baseColor = getColorForType(flowType);
+            pulsedColor.set(getColorForType(flowType));
         }
 
         // Pulse effect
@@ -441,7 +817,6 @@ public class ResourceFlowTracker extends Addable {
         double pulse = MATH.mod(time, 2);
         pulse = MATH.distanceC(pulse, 1, 2);
 
-        ColorImp pulsedColor = new ColorImp(baseColor);
         pulsedColor.shadeSelf(0.3 + pulse * 0.4);
 
         boolean dimmed = hoveredRoom != null && instance.index() != hoveredRoom.index();
@@ -515,10 +890,17 @@ public class ResourceFlowTracker extends Addable {
         // This is O(1) per tile thanks to tilePathMap!
         if (HorizontalResourcePanel.showFlowPaths) {
             long tileKey = FlowConnection.encodeTile(tx, ty);
-            List<FlowConnection> conns = tilePathMap.get(tileKey);
-            if (conns != null && !conns.isEmpty()) {
-                if (conns.size() > 1) {
-                    renderOverlappingPaths(r, it, tx, ty, conns, zoomLevel);
+            // Trunks are drawn once per corridor; under the Shift room filter, fall back to per-connection drawing
+            int limit = lodLimit(zoomLevel);
+            FlowTrunk trunk = hoveredRoom == null ? tileTrunkMap.get(tileKey) : null;
+            if (trunk != null && trunk.leader.lodRank >= limit) trunk = null;
+            List<FlowConnection> conns = trunk == null ? tilePathMap.get(tileKey) : null;
+            int visible = conns != null ? lodVisibleCount(conns, limit) : 0;
+            if (trunk != null) {
+                renderTrunkTile(r, it, tx, ty, trunk, zoomLevel);
+            } else if (visible > 0) {
+                if (visible > 1) {
+                    renderOverlappingPaths(r, it, tx, ty, conns, visible, zoomLevel);
                 } else {
                     FlowConnection conn = conns.get(0);
                     renderPathFollowingArrow(r, it, tx, ty, conn, conn.getColor(), zoomLevel);
@@ -549,10 +931,10 @@ public class ResourceFlowTracker extends Addable {
      * Uses cycling for animation and small indicators for static visibility.
      */
     private void renderOverlappingPaths(Renderer r, RenderIterator it, int tx, int ty,
-                                        List<FlowConnection> conns, int zoomLevel) {
+                                        List<FlowConnection> conns, int count, int zoomLevel) {
         // 1. Cycle active connection for animated arrow (every 0.8s per path)
         double cycleSpeed = 1.2;
-        int activeIdx = (int) ((VIEW.renderSecond() * cycleSpeed) % conns.size());
+        int activeIdx = (int) ((VIEW.renderSecond() * cycleSpeed) % count);
         FlowConnection active = conns.get(activeIdx);
 
         // 2. Render the active path following arrow
@@ -560,18 +942,17 @@ public class ResourceFlowTracker extends Addable {
 
         // 3. For close zoom, show small directional indicators for ALL overlapping paths
         // This is much more informative than just dots!
-        if (zoomLevel <= 1 && conns.size() > 1) {
+        if (zoomLevel <= 1 && count > 1) {
             int iconSize = 6;  // Smaller to fit up to 4 indicators within one tile
             int spacing = 7;
             int startX = it.x() + 2;
             int startY = it.y() + C.TILE_SIZE - iconSize - 2;
 
-            for (int i = 0; i < Math.min(conns.size(), 4); i++) {
+            for (int i = 0; i < Math.min(count, 4); i++) {
                 FlowConnection conn = conns.get(i);
 
                 // Skip rendering non-filtered paths when shift-filtering by room
-                boolean isHovered = hoveredRoom != null && isHoveredConnection(conn);
-                if (hoveredRoom != null && !isHovered) {
+                if (hoveredRoom != null && !conn.inHoveredRoom) {
                     continue;
                 }
 
@@ -618,22 +999,42 @@ public class ResourceFlowTracker extends Addable {
     private void renderPathFollowingArrow(Renderer r, RenderIterator it, int tx, int ty,
                                           FlowConnection conn, COLOR color, int zoomLevel) {
         // Skip rendering non-filtered paths when shift-filtering by room
-        if (hoveredRoom != null && !isHoveredConnection(conn)) {
+        if (hoveredRoom != null && !conn.inHoveredRoom) {
             return;
         }
 
         // 1. Draw static arrow showing path direction (small, sampled by zoom level)
-        renderStaticPathArrow(r, it, tx, ty, conn, color, zoomLevel);
+        renderStaticPathArrow(r, it, tx, ty, conn, color, 0.8,
+            conn.resourceAt(iconSlot(tx, ty)), zoomLevel);
 
         // 2. Draw animated large arrow showing flow movement
         renderAnimatedFlowArrow(r, it, tx, ty, conn, color, zoomLevel);
     }
 
+    /**
+     * Render one trunk tile: a single arrow along the busiest member's path, brighter with more
+     * combined volume, with icons cycling through every resource carried along the corridor
+     */
+    private void renderTrunkTile(Renderer r, RenderIterator it, int tx, int ty, FlowTrunk trunk, int zoomLevel) {
+        FlowConnection leader = trunk.leader;
+        COLOR color = leader.getColor();
+        double shade = Math.min(1.0, 0.8 + 0.05 * Math.log1p(trunk.volume));
+
+        renderStaticPathArrow(r, it, tx, ty, leader, color, shade,
+            trunk.resourceAt(iconSlot(tx, ty)), zoomLevel);
+        renderAnimatedFlowArrow(r, it, tx, ty, leader, color, zoomLevel);
+    }
+
+    private static int iconSlot(int tx, int ty) {
+        return (tx + ty) / Math.max(1, ModConfig.FLOW_ICON_INTERVAL);
+    }
+
     /**
      * Draw a small static arrow on each path tile showing direction
      */
     private void renderStaticPathArrow(Renderer r, RenderIterator it, int tx, int ty,
-                                       FlowConnection conn, COLOR color, int zoomLevel) {
+                                       FlowConnection conn, COLOR color, double shade,
+                                       RESOURCE iconResource, int zoomLevel) {
         // NOTE: Path check skipped for performance - caller ensures this tile is on path via tilePathMap
 
         // Sparse sampling at higher zoom levels (performance optimization)
@@ -669,7 +1070,7 @@ public class ResourceFlowTracker extends Addable {
         // Draw semi-transparent arrow (shows path structure)
         ColorImp arrowColor = new ColorImp();
         arrowColor.set(color);
-        arrowColor.shadeSelf(0.8); // Brighter than before
+        arrowColor.shadeSelf(shade);
         arrowColor.bind();
         arrow.render(r, it.x(), it.y());
         COLOR.unbind();
@@ -677,15 +1078,15 @@ public class ResourceFlowTracker extends Addable {
         // Draw resource icon on top (scaled up x2) - only at close zoom
         // Safety check: ensure FLOW_ICON_INTERVAL is at least 1 to avoid division by zero
         int iconInterval = Math.max(1, ModConfig.FLOW_ICON_INTERVAL);
-        if (zoomLevel <= 1 && conn.resource != null && conn.resource.icon() != null && (tx + ty) % iconInterval == 0) {
+        if (zoomLevel <= 1 && iconResource != null && iconResource.icon() != null && (tx + ty) % iconInterval == 0) {
             int scale = 2;
-            int iconWidth = conn.resource.icon().width() * scale;
-            int iconHeight = conn.resource.icon().height() * scale;
+            int iconWidth = iconResource.icon().width() * scale;
+            int iconHeight = iconResource.icon().height() * scale;
             int iconX = it.x() + (C.TILE_SIZE - iconWidth) / 2;
             int iconY = it.y() + (C.TILE_SIZE - iconHeight) / 2;
 
             COLOR.WHITE100.bind();
-            conn.resource.icon().renderScaled(r, iconX, iconY, scale);
+            iconResource.icon().renderScaled(r, iconX, iconY, scale);
             COLOR.unbind();
         }
     }
@@ -705,7 +1106,7 @@ public class ResourceFlowTracker extends Addable {
      */
     private void renderAnimatedFlowArrow(Renderer r, RenderIterator it, int tx, int ty,
                                          FlowConnection conn, COLOR color, int zoomLevel) {
-        if (conn.pathTiles.isEmpty()) return;
+        if (conn.path.isEmpty()) return;
 
         // NOTE: Path check skipped for performance - caller ensures this tile is on path via tilePathMap
 
@@ -912,7 +1313,7 @@ public class ResourceFlowTracker extends Addable {
             return;
         }
 
-        RoomFlowType flowType = roomTypeCache.get(instance.index());
+        RoomFlowType flowType = roomType(instance.index());
         if (flowType == null || flowType == RoomFlowType.NONE) {
             return;
         }
@@ -969,43 +1370,120 @@ public class ResourceFlowTracker extends Addable {
         COLOR.unbind();
     }
 
+    /**
+     * @return cached classification of the room, or null if it was not classified in the last rebuild
+     */
+    private RoomFlowType roomType(int roomIndex) {
+        if (roomIndex < 0 || roomIndex >= roomTypeCache.length) return null;
+        int code = roomTypeCache[roomIndex];
+        return code == 0 ? null : ROOM_FLOW_TYPES[code - 1];
+    }
+
+    private void setRoomType(int roomIndex, RoomFlowType type) {
+        if (roomIndex < 0) return;
+        if (roomIndex >= roomTypeCache.length) {
+            // Rooms built since the cache was sized
+            roomTypeCache = Arrays.copyOf(roomTypeCache, Math.max(roomIndex + 1, roomTypeCache.length * 2));
+        }
+        if (roomTypeCache[roomIndex] == 0) classifiedRoomCount++;
+        roomTypeCache[roomIndex] = (byte) (type.ordinal() + 1);
+    }
+
+    /**
+     * Checksum of everything rebuildCache reads: rooms, stockpile totals, filters and observed traffic
+     */
+    private long rebuildFingerprint() {
+        long h = SettlementFingerprint.rooms();
+        h = h * 31 + SettlementFingerprint.stockpileTotals();
+        h = h * 31 + FilterContext.current().version;
+        h = h * 31 + persistentFlows.size();
+        if (analyzer != null) {
+            h = h * 31 + analyzer.getData().getTotalHaulEvents();
+        }
+        return h;
+    }
+
+    /**
+     * A rebuild can be skipped when its inputs are unchanged and no visible flow has timed out.
+     * Still rebuilds every MAX_SKIPPED_REBUILDS intervals to catch changes the checksum misses
+     * (e.g. resources moved between two stockpiles).
+     */
+    private boolean canSkipRebuild() {
+        double currentTime = analyzer != null ? analyzer.getData().getGameTime() : VIEW.renderSecond();
+        if (skippedRebuilds >= MAX_SKIPPED_REBUILDS || currentTime >= nextFlowExpiry) {
+            return false;
+        }
+        if (rebuildFingerprint() != lastRebuildFingerprint) {
+            return false;
+        }
+        skippedRebuilds++;
+        return true;
+    }
+
     private void rebuildCache() {
-        roomTypeCache.clear();
+        int roomMax = SETT.ROOMS().map.max();
+        if (roomTypeCache.length < roomMax) {
+            roomTypeCache = new byte[roomMax];
+        } else {
+            Arrays.fill(roomTypeCache, (byte) 0);
+        }
+        classifiedRoomCount = 0;
         flowConnections.clear();
         activeTransports.clear();
 
         try {
             // Build room type cache for all rooms, considering selected/hovered resources
-            for (int i = 0; i < SETT.ROOMS().map.max(); i++) {
+            for (int i = 0; i < roomMax; i++) {
                 Room room = SETT.ROOMS().map.getByIndex(i);
                 if (room == null || !(room instanceof RoomInstance instance)) continue;
 
                 // Classify room for any selected/hovered resource
                 RoomFlowType type = classifyRoomForMultipleResources(instance);
-                roomTypeCache.put(instance.index(), type);
+                setRoomType(instance.index(), type);
             }
 
             // Build flow connections (already handles filtering inside)
             buildFlowConnectionsFromHaulers(null);
+            rankConnections();
 
             // Scan active transports (already handles filtering inside)
             scanActiveTransports(null);
 
-            // update all ~new~ paths immediately during rebuild
+            // Routes that existed before kept their paths; new ones are queued for the path scheduler
             double currentTime = analyzer != null ? analyzer.getData().getGameTime() : VIEW.renderSecond();
-            for (FlowConnection conn : flowConnections) {
-                // Only force update if path is empty or never calculated
-                if (conn.pathTiles.isEmpty() || conn.lastPathUpdate == 0) {
-                    conn.lastPathUpdate = 0; // Force update
-                    conn.updatePath(currentTime);
+            pathQueue.clear();
+            pathScanNeeded = true;
+            if (pathCache.validate(SettlementFingerprint.rooms())) {
+                // Rooms changed, so the component graph may have too: re-path everything (old paths stay visible)
+                for (FlowConnection conn : flowConnections) {
+                    conn.pathBuilt = false;
                 }
             }
 
-            // Populate the tile mapping after all paths are updated
+            // Populate the tile mapping from the carried-over paths
             rebuildTilePathMap();
-            debug("FlowTracker: " + roomTypeCache.size() + " rooms, " +
-                flowConnections.size() + " flows (" + persistentFlows.size() + " tracked), " +
-                activeTransports.size() + " haulers" +
+            bundleTrunks();
+            releaseDroppedSlots();
+            rebuildConnectionIndex();
+            allocateParticleBudget(currentTime);
+
+            nextFlowExpiry = Double.MAX_VALUE;
+            int streamCount = 0;
+            for (FlowConnection conn : flowConnections) {
+                for (FlowStream stream : conn.streams) {
+                    nextFlowExpiry = Math.min(nextFlowExpiry, stream.flowData.expiryTime());
+                }
+                streamCount += conn.streams.size();
+            }
+            lastRebuildFingerprint = rebuildFingerprint();
+            skippedRebuilds = 0;
+            debug("FlowTracker: " + classifiedRoomCount + " rooms, " +
+                flowConnections.size() + " connections, " + streamCount + " flows (" + persistentFlows.size() + " tracked), " +
+                trunkCount + " trunks, " + routeGraph.edgeCount() + " observed routes (" + routeGraph.totalTrips() + " trips, " +
+                String.format("%.1f", routeGraph.totalVolume()) + " recent, avg " +
+                String.format("%.1f", routeGraph.averageDistance()) + " tiles), " + activeTransports.size() + " haulers, " +
+                pathCache.size() + " cached paths (" + pathCache.takeStats() + " hits/misses), " +
+                sampledRoutes.size() + " sampled routes" +
                 (analyzer != null ? ", " + analyzer.getData().getTotalHaulEvents() + " total hauls" : ""));
 
 
@@ -1018,47 +1496,25 @@ public class ResourceFlowTracker extends Addable {
      * Classify a room considering all selected/hovered resources (including chains)
      */
     private RoomFlowType classifyRoomForMultipleResources(RoomInstance instance) {
+        FilterContext filter = FilterContext.current();
+        if (filter.showAll) {
+            return classifyRoom(instance, null);
+        }
+
         boolean produces = false;
         boolean consumes = false;
 
-        // If there are selected resources, check for them (including chain)
-        if (!HorizontalResourcePanel.selectedResources.isEmpty()) {
-            // Use the expanded resource set (includes chain dependencies if enabled)
-            java.util.Set<RESOURCE> effectiveResources = HorizontalResourcePanel.getEffectiveSelectedResources();
-            for (RESOURCE res : effectiveResources) {
-                RoomFlowType type = classifyRoom(instance, res);
-                if (type == RoomFlowType.PRODUCTION || type == RoomFlowType.BOTH) {
-                    produces = true;
-                }
-                if (type == RoomFlowType.CONSUMPTION || type == RoomFlowType.BOTH) {
-                    consumes = true;
-                }
-                if (type == RoomFlowType.STORAGE) {
-                    return RoomFlowType.STORAGE;
-                }
+        // Selected resources, or the hovered resource, already expanded by chains when enabled
+        for (RESOURCE res : filter.resources()) {
+            RoomFlowType type = classifyRoom(instance, res);
+            if (type == RoomFlowType.PRODUCTION || type == RoomFlowType.BOTH) {
+                produces = true;
             }
-        } else {
-            // Otherwise use hovered resource (including its chain) or show all
-            RESOURCE hovered = getHoveredResource();
-            if (hovered != null && HorizontalResourcePanel.showResourceChains) {
-                // Check for hovered resource and its chain
-                java.util.Set<RESOURCE> hoveredChain = new java.util.HashSet<>();
-                hoveredChain.add(hovered);
-                java.util.Set<RESOURCE> expandedChain = HorizontalResourcePanel.getExpandedResourceChain(hoveredChain);
-                for (RESOURCE res : expandedChain) {
-                    RoomFlowType type = classifyRoom(instance, res);
-                    if (type == RoomFlowType.PRODUCTION || type == RoomFlowType.BOTH) {
-                        produces = true;
-                    }
-                    if (type == RoomFlowType.CONSUMPTION || type == RoomFlowType.BOTH) {
-                        consumes = true;
-                    }
-                    if (type == RoomFlowType.STORAGE) {
-                        return RoomFlowType.STORAGE;
-                    }
-                }
-            } else {
-                return classifyRoom(instance, hovered);
+            if (type == RoomFlowType.CONSUMPTION || type == RoomFlowType.BOTH) {
+                consumes = true;
+            }
+            if (type == RoomFlowType.STORAGE) {
+                return RoomFlowType.STORAGE;
             }
         }
 
@@ -1069,7 +1525,8 @@ public class ResourceFlowTracker extends Addable {
     }
 
     /**
-     * Build flow connections from active haulers and update persistent flow map
+     * Build flow connections from observed hauler trips (implied industry flows fill the gaps)
+     * and update persistent flow map
      */
     private void buildFlowConnectionsFromHaulers(RESOURCE filter) {
         if (analyzer == null) return;
@@ -1077,68 +1534,25 @@ public class ResourceFlowTracker extends Addable {
         try {
             double currentTime = analyzer.getData().getGameTime();
 
-            // Update persistent flows from active haulers
-            for (var entity : SETT.ENTITIES().getAllEnts()) {
-                if (entity == null) continue;
-                if (!(entity instanceof Humanoid h)) continue;
-
-                if (h.ai() == null) continue;
-
-                RESOURCE carried = h.ai().resourceCarried();
-                if (carried == null) continue;
-
-                // Filter by selected/hovered resources
-                if (!shouldDisplayResource(carried)) continue;
-
-                var dest = h.ai().getDestination();
-                if (dest == null) continue;
+            // Forget flows not seen within the activity window
+            flowExpiry.advance(currentTime, this::forgetFlow);
 
-                // Get destination room (where hauler is going)
-                int destTx = dest.x();
-                int destTy = dest.y();
-                Room destRoom = SETT.ROOMS().map.get(destTx, destTy);
-
-                if (!(destRoom instanceof RoomInstance destInstance)) continue;
-
-                // Determine actual flow direction based on room types
-                // If hauler is carrying resource TO a producer, they must be coming FROM storage/consumer
-                // If hauler is carrying resource TO a consumer/storage, they must be coming FROM producer/storage
-                boolean destProduces = ResourceFlowAnalyzer.roomProducesResource(destInstance, carried);
-                boolean destConsumes = ResourceFlowAnalyzer.roomConsumesResource(destInstance, carried);
-                boolean destIsStorage = destInstance.blueprintI() == SETT.ROOMS().STOCKPILE;
-
-                // Skip if destination doesn't interact with this resource
-                if (!destProduces && !destConsumes && !destIsStorage) continue;
-
-                // For flow tracking, we need to find the SOURCE of the resource
-                // The hauler is going TO destInstance, but they must have come FROM somewhere
-                // We need to infer the source based on game logic:
-                // - If dest is a consumer/storage, source is likely a producer/storage (valid flow)
-                // - If dest is a producer, hauler is likely returning empty/wrong direction (skip)
-
-                if (destProduces && !destConsumes && !destIsStorage) {
-                    // Destination produces this resource - hauler shouldn't be bringing it there!
-                    // This is likely a hauler going TO pick up resources, not delivering
-                    // Skip this flow as it would be backwards
-                    continue;
-                }
+            // Index the routes haulers were actually seen completing
+            rebuildRouteGraph();
 
-                // Valid delivery: hauler is bringing resource to consumer or storage
-                // We'll track this as an observed flow, but we can't determine exact source room
-                // from current position alone. Instead, rely on implied flows from industry
-                // relationships. Just mark this flow pair as recently active.
-                // (Actual flow connections are built from industry relationships below)
-            }
-
-            // First build connections from industry production/consumption relationships
+            // Then imply flows from industry production/consumption relationships where no trips were observed
             // This adds new flows to persistentFlows
             buildFlowConnectionsFromIndustry(currentTime);
 
             // Then build visible connections from ALL persistent flows (including newly added ones)
             final double FLOW_TIMEOUT = 300.0; // Show flows seen in last 5 minutes
+            Map<Long, FlowConnection> pairs = new HashMap<>();
             for (FlowConnectionData flowData : persistentFlows.values()) {
                 if (!flowData.isActive(currentTime)) continue;
 
+                // Observed traffic replaces the guess made for the same room and resource
+                if (flowData.isCoveredBy(routeGraph)) continue;
+
                 // Filter by selected/hovered resources
                 if (!shouldDisplayResource(flowData.resource)) continue;
 
@@ -1149,14 +1563,38 @@ public class ResourceFlowTracker extends Addable {
                     flowData.resource  // Pass the resource to check actual production/consumption!
                 );
 
-                flowConnections.add(new FlowConnection(
-                    flowData.sourceRoomX, flowData.sourceRoomY,
-                    flowData.sourceRoomIdx,
-                    flowData.destRoomX, flowData.destRoomY,
-                    flowData.destRoomIdx,
-                    flowData.resource,
-                    flowType
-                ));
+                // One connection per room pair; each resource on it becomes a stream
+                long pairKey = roomPairKey(flowData.sourceRoomIdx, flowData.destRoomIdx);
+                FlowConnection conn = pairs.get(pairKey);
+                if (conn == null) {
+                    conn = new FlowConnection(
+                        flowData.sourceRoomX, flowData.sourceRoomY,
+                        flowData.sourceRoomIdx,
+                        flowData.destRoomX, flowData.destRoomY,
+                        flowData.destRoomIdx
+                    );
+                    // Same route as before this rebuild: keep its path instead of requesting it again
+                    FlowConnection previous = connectionsByPair.get(pairKey);
+                    if (previous != null) {
+                        conn.adoptPath(previous);
+                    }
+                    pairs.put(pairKey, conn);
+                    flowConnections.add(conn);
+                }
+
+                FlowStream stream = new FlowStream(conn, flowData, flowType);
+                FlowStream previousStream = streamsByRoute.get(
+                    FlowParticleSystem.makeConnectionKey(conn.sourceRoomIdx, conn.destRoomIdx, flowData.resource));
+                if (previousStream != null) {
+                    // Hand the slot over; the previous stream must not release it
+                    stream.particleSlot = previousStream.particleSlot;
+                    previousStream.particleSlot = -1;
+                }
+                conn.addStream(stream);
+            }
+
+            for (FlowConnection conn : flowConnections) {
+                conn.finishStreams(currentTime);
             }
 
         } catch (Exception e) {
@@ -1176,27 +1614,16 @@ public class ResourceFlowTracker extends Addable {
             List<RoomInstance> storages = new ArrayList<>();
 
             // Build list of resources to check (including chain expansion)
-            java.util.List<RESOURCE> resourcesToCheck = new java.util.ArrayList<>();
-            if (!HorizontalResourcePanel.selectedResources.isEmpty()) {
-                // Use expanded resource chain if enabled
-                java.util.Set<RESOURCE> effectiveSet = HorizontalResourcePanel.getEffectiveSelectedResources();
-                resourcesToCheck.addAll(effectiveSet);
-            } else {
-                RESOURCE hovered = getHoveredResource();
-                if (hovered != null) {
-                    // Include hovered resource and its chain
-                    if (HorizontalResourcePanel.showResourceChains) {
-                        java.util.Set<RESOURCE> hoveredChain = new java.util.HashSet<>();
-                        hoveredChain.add(hovered);
-                        resourcesToCheck.addAll(HorizontalResourcePanel.getExpandedResourceChain(hoveredChain));
-                    } else {
-                        resourcesToCheck.add(hovered);
-                    }
-                } else {
-                    for (RESOURCE res : RESOURCES.ALL()) {
-                        resourcesToCheck.add(res);
-                    }
+            FilterContext filter = FilterContext.current();
+            java.util.List<RESOURCE> resourcesToCheck;
+            if (filter.showAll) {
+                resourcesToCheck = new java.util.ArrayList<>();
+                for (RESOURCE res : RESOURCES.ALL()) {
+                    resourcesToCheck.add(res);
                 }
+            } else {
+                // Selection or hovered resource, chain-expanded
+                resourcesToCheck = filter.resources();
             }
 
             // Scan all rooms and classify them using our helper methods
@@ -1212,7 +1639,6 @@ public class ResourceFlowTracker extends Addable {
 
                 // For each resource, use our helper methods to check production/consumption
                 for (RESOURCE res : resourcesToCheck) {
-                    if (!shouldDisplayResource(res)) continue;
 
                     // Use helper method - covers ALL production types via INDUSTRY_HASER
                     if (ResourceFlowAnalyzer.roomProducesResource(instance, res)) {
@@ -1234,10 +1660,12 @@ public class ResourceFlowTracker extends Addable {
                 if (prodList != null && !storages.isEmpty()) {
                     // Producer -> Storage flows
                     for (RoomInstance prod : prodList) {
+                        // Haulers already seen carrying this output somewhere
+                        if (routeGraph.ships(prod.index(), res.index())) continue;
                         // Find nearest storage with capacity
                         RoomInstance nearestStorage = findNearestStorage(prod, res, storages);
                         if (nearestStorage != null) {
-                            addImpliedFlow(prod, nearestStorage, res, currentTime);
+                            addImpliedFlow(prod, nearestStorage, res, true, currentTime);
                         }
                     }
                 }
@@ -1245,10 +1673,12 @@ public class ResourceFlowTracker extends Addable {
                 if (consList != null && !storages.isEmpty()) {
                     // Storage -> Consumer flows
                     for (RoomInstance cons : consList) {
+                        // Haulers already seen delivering this input
+                        if (routeGraph.receives(cons.index(), res.index())) continue;
                         // Find nearest storage with resources
                         RoomInstance nearestStorage = findNearestStorage(cons, res, storages);
                         if (nearestStorage != null) {
-                            addImpliedFlow(nearestStorage, cons, res, currentTime);
+                            addImpliedFlow(nearestStorage, cons, res, false, currentTime);
                         }
                     }
                 }
@@ -1294,25 +1724,100 @@ public class ResourceFlowTracker extends Addable {
 
     /**
      * Add an implied flow connection based on industry relationships
+     *
+     * @param fromSource true if the flow stands in for the source room's output (producer -> storage),
+     *                   false for the destination room's input (storage -> consumer)
      */
-    private void addImpliedFlow(RoomInstance src, RoomInstance dst, RESOURCE res, double currentTime) {
-        String flowKey = src.index() + "->" + dst.index() + ":" + res.index();
+    private void addImpliedFlow(RoomInstance src, RoomInstance dst, RESOURCE res, boolean fromSource, double currentTime) {
+        long flowKey = FlowParticleSystem.makeConnectionKey(src.index(), dst.index(), res);
 
         FlowConnectionData flowData = persistentFlows.get(flowKey);
         if (flowData == null) {
-            flowData = new FlowConnectionData(
-                src.index(), dst.index(),
-                src.body().cX(), src.body().cY(),
-                dst.body().cX(), dst.body().cY(),
-                res
-            );
-            persistentFlows.put(flowKey, flowData);
+            flowData = trackFlow(flowKey, src, dst, res);
+            flowData.impliedFromSource = fromSource;
         }
 
         // Mark as recently seen (but don't increase trip count for implied flows)
         flowData.lastSeenTime = currentTime;
     }
 
+    /**
+     * Merge a completed trip's sampled positions into its route; once the route has enough samples,
+     * its connection drops the pathfinder path on the next path scan
+     */
+    private void recordRouteSamples(FlowConnectionData flowData, int[] trail, double time) {
+        if (!ModConfig.FLOW_SAMPLED_PATHS) return;
+        boolean ready = sampledRoutes.addTrip(flowData.sourceRoomIdx, flowData.destRoomIdx,
+            flowData.sourceRoomX, flowData.sourceRoomY, flowData.destRoomX, flowData.destRoomY, trail, time);
+        if (!ready) return;
+
+        FlowConnection conn = connectionsByPair.get(roomPairKey(flowData.sourceRoomIdx, flowData.destRoomIdx));
+        if (conn != null) {
+            conn.pathBuilt = false;
+            pathScanNeeded = true;
+        }
+    }
+
+    /**
+     * Record a completed hauler trip on its exact route
+     *
+     * @return the route's flow data, or null if the trip did not run between two rooms
+     */
+    private FlowConnectionData recordObservedTrip(int sourceRoom, int destRoom, RESOURCE resource,
+                                                  float distance, double time) {
+        if (resource == null || sourceRoom < 0 || destRoom < 0 || sourceRoom == destRoom) return null;
+        long flowKey = FlowParticleSystem.makeConnectionKey(sourceRoom, destRoom, resource);
+
+        FlowConnectionData flowData = persistentFlows.get(flowKey);
+        if (flowData == null) {
+            if (!(SETT.ROOMS().map.getByIndex(sourceRoom) instanceof RoomInstance src)) return null;
+            if (!(SETT.ROOMS().map.getByIndex(destRoom) instanceof RoomInstance dst)) return null;
+            flowData = trackFlow(flowKey, src, dst, resource);
+        }
+        flowData.observed = true;
+        flowData.recordTrip(time, distance);
+        return flowData;
+    }
+
+    /**
+     * Start tracking a new persistent flow (expiry wheel plus the hard cap)
+     */
+    private FlowConnectionData trackFlow(long flowKey, RoomInstance src, RoomInstance dst, RESOURCE res) {
+        FlowConnectionData flowData = new FlowConnectionData(
+            flowKey,
+            src.index(), dst.index(),
+            src.body().cX(), src.body().cY(),
+            dst.body().cX(), dst.body().cY(),
+            res
+        );
+        persistentFlows.put(flowKey, flowData);
+        flowExpiry.schedule(flowData);
+
+        // Hard cap: evict the least recently seen flows
+        while (persistentFlows.size() > ModConfig.FLOW_MAX_TRACKED_FLOWS) {
+            if (!flowExpiry.evictOldest(this::forgetFlow)) break;
+        }
+        return flowData;
+    }
+
+    /**
+     * Rebuild the CSR route graph from the live observed flows
+     */
+    private void rebuildRouteGraph() {
+        double currentTime = analyzer.getData().getGameTime();
+        routeGraph.begin();
+        for (FlowConnectionData flowData : persistentFlows.values()) {
+            if (!flowData.observed) continue;
+            routeGraph.add(flowData.sourceRoomIdx, flowData.destRoomIdx, flowData.resource.index(),
+                flowData.tripCount, flowData.recentTrips(currentTime), flowData.avgDistance());
+        }
+        routeGraph.build();
+    }
+
+    private void forgetFlow(FlowConnectionData flowData) {
+        persistentFlows.remove(flowData.key);
+    }
+
     private void scanActiveTransports(RESOURCE filter) {
         try {
             for (var entity : SETT.ENTITIES().getAllEnts()) {
@@ -1401,7 +1906,7 @@ public class ResourceFlowTracker extends Addable {
                 Room room = SETT.ROOMS().map.getByIndex(i);
                 if (!(room instanceof RoomInstance instance)) continue;
 
-                RoomFlowType flowType = roomTypeCache.get(instance.index());
+                RoomFlowType flowType = roomType(instance.index());
                 if (flowType == null || flowType == RoomFlowType.NONE) continue;
 
                 COLOR baseColor = getColorForType(flowType);
@@ -1422,18 +1927,26 @@ public class ResourceFlowTracker extends Addable {
 
         // 2. Render flow connections
         if (HorizontalResourcePanel.showFlowPaths) {
-            for (FlowConnection conn : flowConnections) {
-                if (!shouldDisplayResource(conn.resource)) continue;
+            FilterContext filter = FilterContext.current();
+            int limit = lodLimit(zoom);
+            // Only connections whose bounding box reaches the shown part of the map
+            RECTANGLE shown = window.pixels();
+            gridQuery.clear();
+            connectionGrid.query(shown.x1() / C.TILE_SIZE, shown.y1() / C.TILE_SIZE,
+                shown.x2() / C.TILE_SIZE, shown.y2() / C.TILE_SIZE, gridQuery);
+            for (FlowConnection conn : gridQuery) {
+                if (hoveredRoom != null && !conn.inHoveredRoom) continue;
+                if (conn.lodRank >= limit) continue;
+                if (!filter.showsAny(conn.resourceBits)) continue;
 
                 COLOR color = conn.getColor();
                 color.bind();
 
-                if (!conn.pathTiles.isEmpty()) {
-                    for (FlowConnection.PathTile tile : conn.pathTiles) {
-                        int x = absBounds.x1() + ((tile.x() * C.TILE_SIZE - window.pixels().x1()) >> zoom);
-                        int y = absBounds.y1() + ((tile.y() * C.TILE_SIZE - window.pixels().y1()) >> zoom);
-                        r.renderParticle(x, y);
-                    }
+                FlowPath path = conn.path;
+                for (int i = 0; i < path.size(); i++) {
+                    int x = absBounds.x1() + ((path.x(i) * C.TILE_SIZE - window.pixels().x1()) >> zoom);
+                    int y = absBounds.y1() + ((path.y(i) * C.TILE_SIZE - window.pixels().y1()) >> zoom);
+                    r.renderParticle(x, y);
                 }
             }
             COLOR.unbind();
@@ -1454,10 +1967,7 @@ public class ResourceFlowTracker extends Addable {
 
         // 4. Render Traffic Heatmap in Strategic View
         if (HorizontalResourcePanel.showTrafficHeatmap && analyzer != null) {
-            RESOURCE filter = getHoveredResource();
-            if (filter == null && !HorizontalResourcePanel.selectedResources.isEmpty()) {
-                filter = HorizontalResourcePanel.selectedResources.iterator().next();
-            }
+            RESOURCE filter = FilterContext.current().primary;
 
             Map<Long, Float> trafficMap = analyzer.getData().getResourceTraffic(filter);
 
@@ -1580,12 +2090,15 @@ public class ResourceFlowTracker extends Addable {
         RESOURCE hovered = getHoveredResource();
         String resourceText = hovered == null ? "All" : hovered.name.toString();
 
-        long prodCount = roomTypeCache.values().stream()
-            .filter(t -> t == RoomFlowType.PRODUCTION || t == RoomFlowType.BOTH).count();
-        long consCount = roomTypeCache.values().stream()
-            .filter(t -> t == RoomFlowType.CONSUMPTION || t == RoomFlowType.BOTH).count();
-        long storCount = roomTypeCache.values().stream()
-            .filter(t -> t == RoomFlowType.STORAGE).count();
+        int prodCount = 0;
+        int consCount = 0;
+        int storCount = 0;
+        for (int i = 0; i < roomTypeCache.length; i++) {
+            RoomFlowType t = roomType(i);
+            if (t == RoomFlowType.PRODUCTION || t == RoomFlowType.BOTH) prodCount++;
+            if (t == RoomFlowType.CONSUMPTION || t == RoomFlowType.BOTH) consCount++;
+            if (t == RoomFlowType.STORAGE) storCount++;
+        }
 
         StringBuilder sb = new StringBuilder();
         sb.append(String.format("Flow (%s): P:%d C:%d S:%d | H:%d",
@@ -1634,6 +2147,8 @@ public class ResourceFlowTracker extends Addable {
         NONE
     }
 
+    private static final RoomFlowType[] ROOM_FLOW_TYPES = RoomFlowType.values();
+
     /**
      * Flow types for color-coding connections
      */
@@ -1646,33 +2161,112 @@ public class ResourceFlowTracker extends Addable {
     }
 
     /**
-     * Represents a flow connection between two rooms with cached path
+     * Represents a flow connection between two rooms with cached path.
+     * One connection per room pair: every resource hauled along it is a {@link FlowStream}
+     * sharing the connection's path, tile set and tile-map entries.
      */
     private static class FlowConnection {
         final int sourceRoomX, sourceRoomY;
         final int destRoomX, destRoomY;
         final int sourceRoomIdx, destRoomIdx;
-        final RESOURCE resource;
-        final FlowType flowType;
 
-        // Cached path tiles (extracted from SPath for rendering)
-        final java.util.List<PathTile> pathTiles;
+        // Resources carried along this room pair, heaviest observed volume first
+        final List<FlowStream> streams = new ArrayList<>(2);
+        // Carried resources by RESOURCE.index()
+        long[] resourceBits = new long[0];
+        // Flow type of the heaviest stream (used for colour)
+        FlowType flowType = FlowType.UNKNOWN;
+
+        // Cached path (extracted from SPath for rendering), shared with this connection's particles
+        FlowPath path = FlowPath.EMPTY;
         // Pre-computed set of tiles on path (for O(1) lookup instead of O(n) distance calculation)
-        final java.util.Set<Long> pathTileSet = new java.util.HashSet<>();
+        // Replaced (never mutated) on path updates, so it can be shared with the next rebuild's connection
+        PathTiles pathTiles = PathTiles.EMPTY;
         double lastPathUpdate = 0;
+        boolean pathBuilt = false;
+        // Path scheduler priority, set when queued
+        double pathPriority = 0;
         // Cached path length (calculated once when path updates) - HUGE performance win!
         double cachedPathLength = 0;
-
-        FlowConnection(int srcX, int srcY, int srcIdx, int dstX, int dstY, int dstIdx, RESOURCE res, FlowType type) {
+        // Touches the Shift-hovered room (maintained by applyRoomFilter)
+        boolean inHoveredRoom = false;
+        // Level-of-detail score and rank among all connections (0 = most important), set per rebuild
+        double importance = 0;
+        int lodRank = 0;
+        // Tile-space bounding box of the endpoints and path (updated with the path)
+        int boxX1, boxY1, boxX2, boxY2;
+
+        FlowConnection(int srcX, int srcY, int srcIdx, int dstX, int dstY, int dstIdx) {
             this.sourceRoomX = srcX;
             this.sourceRoomY = srcY;
             this.sourceRoomIdx = srcIdx;
             this.destRoomX = dstX;
             this.destRoomY = dstY;
             this.destRoomIdx = dstIdx;
-            this.resource = res;
-            this.flowType = type;
-            this.pathTiles = new java.util.ArrayList<>();
+            updateBox();
+        }
+
+        private void updateBox() {
+            boxX1 = Math.min(sourceRoomX, destRoomX);
+            boxY1 = Math.min(sourceRoomY, destRoomY);
+            boxX2 = Math.max(sourceRoomX, destRoomX);
+            boxY2 = Math.max(sourceRoomY, destRoomY);
+            if (!path.isEmpty()) {
+                boxX1 = Math.min(boxX1, path.minX());
+                boxY1 = Math.min(boxY1, path.minY());
+                boxX2 = Math.max(boxX2, path.maxX());
+                boxY2 = Math.max(boxY2, path.maxY());
+            }
+        }
+
+        boolean overlaps(int x1, int y1, int x2, int y2) {
+            return boxX1 <= x2 && boxX2 >= x1 && boxY1 <= y2 && boxY2 >= y1;
+        }
+
+        void addStream(FlowStream stream) {
+            streams.add(stream);
+            int word = stream.resource.index() >> 6;
+            if (word >= resourceBits.length) {
+                resourceBits = Arrays.copyOf(resourceBits, word + 1);
+            }
+            resourceBits[word] |= 1L << (stream.resource.index() & 63);
+        }
+
+        /**
+         * Order streams by observed volume (the per-resource weights) once all were added
+         */
+        void finishStreams(double currentTime) {
+            for (FlowStream stream : streams) {
+                stream.weight = stream.observedVolume(currentTime);
+            }
+            streams.sort((a, b) -> Double.compare(b.weight, a.weight));
+            flowType = streams.isEmpty() ? FlowType.UNKNOWN : streams.get(0).flowType;
+        }
+
+        /**
+         * Resource for the n-th icon along the path, so a shared path cycles through what it carries
+         */
+        RESOURCE resourceAt(int n) {
+            return streams.isEmpty() ? null : streams.get(Math.floorMod(n, streams.size())).resource;
+        }
+
+        double observedVolume(double currentTime) {
+            double total = 0;
+            for (FlowStream stream : streams) {
+                total += stream.observedVolume(currentTime);
+            }
+            return total;
+        }
+
+        /**
+         * Summed stream weights from the last build
+         */
+        double weight() {
+            double total = 0;
+            for (FlowStream stream : streams) {
+                total += stream.weight;
+            }
+            return total;
         }
 
         // Helper to encode tile coordinates into a single long
@@ -1682,7 +2276,7 @@ public class ResourceFlowTracker extends Addable {
 
         // Check if a tile is on the path (O(1) lookup!)
         boolean isTileOnPath(int tx, int ty) {
-            return pathTileSet.contains(encodeTile(tx, ty));
+            return pathTiles.contains(encodeTile(tx, ty));
         }
 
         // Get color based on flow type
@@ -1697,115 +2291,56 @@ public class ResourceFlowTracker extends Addable {
         }
 
         /**
-         * Request and cache a SIMPLIFIED component-based path (much faster!)
-         * Uses the pre-computed component graph instead of full A* pathfinding
-         * <p>
-         * CRITICAL: SCompFinder returns a SHARED, MUTABLE object that gets overwritten
-         * by subsequent calls! We MUST extract and copy the data IMMEDIATELY!
+         * @return true if this connection never had a path request or its path is older than PATH_REFRESH_INTERVAL
          */
-        boolean updatePath(double currentTime) {
-            // Only request new path every 60 seconds (component paths change rarely)
-            if (currentTime - lastPathUpdate < 60.0) {
-                return !pathTiles.isEmpty();
-            }
-
-            lastPathUpdate = currentTime;
-
-            // Build new path in temp list to avoid flashing (don't clear old path until new one is ready!)
-            java.util.List<PathTile> newPath = new java.util.ArrayList<>();
+        boolean needsPath(double currentTime) {
+            return !pathBuilt || currentTime - lastPathUpdate >= PATH_REFRESH_INTERVAL;
+        }
 
-            try {
-                // Use component pathfinding - WAY faster, returns component centers
-                // WARNING: This returns a SHARED MUTABLE object! Extract data immediately!
-                settlement.path.components.finder.SCompFinder.SCompPath compPath =
-                    SETT.PATH().comps.pather.findDest(sourceRoomX, sourceRoomY, destRoomX, destRoomY);
-
-                if (compPath != null && compPath.path() != null) {
-                    // IMMEDIATELY extract all components before they get overwritten!
-                    // The compPath.path() list is reused and will be cleared on next call!
-                    // CRITICAL: Component paths are in REVERSE order (dest->source)!
-                    // We need to reverse them to get source->dest order for correct flow direction
-                    snake2d.util.sets.LIST<settlement.path.components.SComponent> components = compPath.path();
-                    int count = components.size();
-
-                    // Add in REVERSE order to get source->dest
-                    for (int i = count - 1; i >= 0; i--) {
-                        settlement.path.components.SComponent comp = components.get(i);
-                        if (comp != null) {
-                            newPath.add(new PathTile(comp.centreX(), comp.centreY()));
-                        }
-                    }
-                }
+        /**
+         * Take over the path of the same route from the previous cache rebuild
+         */
+        void adoptPath(FlowConnection previous) {
+            path = previous.path;
+            cachedPathLength = previous.cachedPathLength;
+            pathTiles = previous.pathTiles;
+            lastPathUpdate = previous.lastPathUpdate;
+            pathBuilt = previous.pathBuilt;
+            updateBox();
+        }
 
-                // Fallback: if no component path, use straight line
-                if (newPath.isEmpty()) {
-                    newPath.add(new PathTile(sourceRoomX, sourceRoomY));
-                    newPath.add(new PathTile(destRoomX, destRoomY));
-                }
+        /**
+         * Take the route's path from the sampled hauler routes, else from the shared path cache
+         * (requested from the component pather on a miss).
+         * The path and tile set are shared immutably with every connection on the same route.
+         */
+        boolean updatePath(double currentTime, FlowPathCache cache, SampledRoutes sampled) {
+            // Scheduling (refresh interval, priority, budget) is decided by the tracker
+            lastPathUpdate = currentTime;
+            pathBuilt = true;
 
-            } catch (Exception e) {
-                // Silent fallback to straight line
-                newPath.clear();
-                newPath.add(new PathTile(sourceRoomX, sourceRoomY));
-                newPath.add(new PathTile(destRoomX, destRoomY));
+            FlowPathCache.Entry entry = ModConfig.FLOW_SAMPLED_PATHS
+                ? sampled.get(sourceRoomIdx, destRoomIdx, sourceRoomX, sourceRoomY, destRoomX, destRoomY)
+                : null;
+            if (entry == null) {
+                entry = cache.get(sourceRoomX, sourceRoomY, destRoomX, destRoomY, currentTime, PATH_REFRESH_INTERVAL);
             }
 
             // Atomically swap in the new path (no flashing!)
-            pathTiles.clear();
-            pathTiles.addAll(newPath);
-
-            // CRITICAL: Calculate and cache path length NOW (only once!)
-            cachedPathLength = 0;
-            for (int i = 0; i < pathTiles.size() - 1; i++) {
-                PathTile p1 = pathTiles.get(i);
-                PathTile p2 = pathTiles.get(i + 1);
-                double dx = p2.x - p1.x;
-                double dy = p2.y - p1.y;
-                cachedPathLength += Math.sqrt(dx * dx + dy * dy);
-            }
-
-            // CRITICAL: Pre-build HashSet of all tiles on path for O(1) lookup!
-            pathTileSet.clear();
-            for (int i = 0; i < pathTiles.size() - 1; i++) {
-                PathTile p1 = pathTiles.get(i);
-                PathTile p2 = pathTiles.get(i + 1);
-
-                // Rasterize line segment into tiles (Bresenham-like)
-                int x1 = p1.x, y1 = p1.y;
-                int x2 = p2.x, y2 = p2.y;
-
-                int dx = Math.abs(x2 - x1);
-                int dy = Math.abs(y2 - y1);
-                int sx = x1 < x2 ? 1 : -1;
-                int sy = y1 < y2 ? 1 : -1;
-                int err = dx - dy;
-
-                int x = x1, y = y1;
-                while (true) {
-                    pathTileSet.add(encodeTile(x, y));
-
-                    if (x == x2 && y == y2) break;
-
-                    int e2 = 2 * err;
-                    if (e2 > -dy) {
-                        err -= dy;
-                        x += sx;
-                    }
-                    if (e2 < dx) {
-                        err += dx;
-                        y += sy;
-                    }
-                }
-            }
+            // Particles already in flight finish on the old instance
+            path = entry.path;
+            cachedPathLength = path.length();
+            pathTiles = entry.tiles;
+            updateBox();
 
-            return !pathTiles.isEmpty();
+            return !path.isEmpty();
         }
 
         /**
          * Check if a tile is on or near the cached path (component-level, so use larger tolerance)
          */
         boolean isNearPath(int tx, int ty, double maxDist) {
-            if (pathTiles.isEmpty()) {
+            if (path.isEmpty()) {
                 // Fallback to straight line check
                 return isNearStraightLine(tx, ty, sourceRoomX, sourceRoomY, destRoomX, destRoomY, maxDist);
             }
@@ -1814,11 +2349,8 @@ public class ResourceFlowTracker extends Addable {
             double tolerance = maxDist * 8; // Components can be 16-64 tiles wide
 
             // Check if tile is within tolerance of any path segment
-            for (int i = 0; i < pathTiles.size() - 1; i++) {
-                PathTile p1 = pathTiles.get(i);
-                PathTile p2 = pathTiles.get(i + 1);
-
-                if (isNearLineSegment(tx, ty, p1.x, p1.y, p2.x, p2.y, tolerance)) {
+            for (int i = 0; i < path.size() - 1; i++) {
+                if (isNearLineSegment(tx, ty, path.x(i), path.y(i), path.x(i + 1), path.y(i + 1), tolerance)) {
                     return true;
                 }
             }
@@ -1830,7 +2362,11 @@ public class ResourceFlowTracker extends Addable {
          * Get direction at a specific tile position along the path
          */
         DIR getDirectionAtTile(int tx, int ty) {
-            if (pathTiles.isEmpty()) {
+            // Path tiles carry their direction from rasterisation
+            DIR onPath = pathTiles.dirAt(encodeTile(tx, ty));
+            if (onPath != null) return onPath;
+
+            if (path.isEmpty()) {
                 // Fallback to straight line direction
                 int dx = destRoomX - sourceRoomX;
                 int dy = destRoomY - sourceRoomY;
@@ -1841,11 +2377,8 @@ public class ResourceFlowTracker extends Addable {
             int closestSegment = -1;
             double closestDist = Double.MAX_VALUE;
 
-            for (int i = 0; i < pathTiles.size() - 1; i++) {
-                PathTile p1 = pathTiles.get(i);
-                PathTile p2 = pathTiles.get(i + 1);
-
-                double dist = distanceToSegment(tx, ty, p1.x, p1.y, p2.x, p2.y);
+            for (int i = 0; i < path.size() - 1; i++) {
+                double dist = distanceToSegment(tx, ty, path.x(i), path.y(i), path.x(i + 1), path.y(i + 1));
                 if (dist < closestDist) {
                     closestDist = dist;
                     closestSegment = i;
@@ -1853,12 +2386,9 @@ public class ResourceFlowTracker extends Addable {
             }
 
             if (closestSegment >= 0) {
-                PathTile p1 = pathTiles.get(closestSegment);
-                PathTile p2 = pathTiles.get(closestSegment + 1);
-
                 // Calculate direction from p1 to p2 (forward along path)
-                int dx = p2.x - p1.x;
-                int dy = p2.y - p1.y;
+                int dx = path.x(closestSegment + 1) - path.x(closestSegment);
+                int dy = path.y(closestSegment + 1) - path.y(closestSegment);
                 DIR d = DIR.get(dx, dy);
                 return d != null ? d : DIR.N;
             }
@@ -1870,7 +2400,7 @@ public class ResourceFlowTracker extends Addable {
          * Get progress along path for animation (0.0 to 1.0)
          */
         double getPathProgress(int tx, int ty) {
-            if (pathTiles.isEmpty()) {
+            if (path.isEmpty()) {
                 // Fallback to straight line projection
                 int dx = destRoomX - sourceRoomX;
                 int dy = destRoomY - sourceRoomY;
@@ -1881,43 +2411,34 @@ public class ResourceFlowTracker extends Addable {
                 return projDist / pathLength;
             }
 
-            // Find closest point on path and calculate accumulated distance
-            double totalLength = 0;
-            for (int i = 0; i < pathTiles.size() - 1; i++) {
-                PathTile p1 = pathTiles.get(i);
-                PathTile p2 = pathTiles.get(i + 1);
-                totalLength += Math.sqrt((p2.x - p1.x) * (p2.x - p1.x) + (p2.y - p1.y) * (p2.y - p1.y));
-            }
-
+            // Find closest point on path; accumulated distance comes from the precomputed arc lengths
+            double totalLength = path.length();
             if (totalLength < 1) return 0;
 
-            double accumulatedDist = 0;
             double closestSegmentDist = Double.MAX_VALUE;
             double progressAtClosest = 0;
 
-            for (int i = 0; i < pathTiles.size() - 1; i++) {
-                PathTile p1 = pathTiles.get(i);
-                PathTile p2 = pathTiles.get(i + 1);
+            for (int i = 0; i < path.size() - 1; i++) {
+                int x1 = path.x(i), y1 = path.y(i);
+                int x2 = path.x(i + 1), y2 = path.y(i + 1);
 
-                double segmentLength = Math.sqrt((p2.x - p1.x) * (p2.x - p1.x) + (p2.y - p1.y) * (p2.y - p1.y));
-                double dist = distanceToSegment(tx, ty, p1.x, p1.y, p2.x, p2.y);
+                double dist = distanceToSegment(tx, ty, x1, y1, x2, y2);
 
                 if (dist < closestSegmentDist) {
                     closestSegmentDist = dist;
 
                     // Calculate t parameter on this segment
-                    double dx = p2.x - p1.x;
-                    double dy = p2.y - p1.y;
+                    double dx = x2 - x1;
+                    double dy = y2 - y1;
                     double lenSq = dx * dx + dy * dy;
                     double t = 0;
                     if (lenSq > 0) {
-                        t = Math.max(0, Math.min(1, ((tx - p1.x) * dx + (ty - p1.y) * dy) / lenSq));
+                        t = Math.max(0, Math.min(1, ((tx - x1) * dx + (ty - y1) * dy) / lenSq));
                     }
 
-                    progressAtClosest = (accumulatedDist + t * segmentLength) / totalLength;
+                    double segmentLength = path.cumulativeLength(i + 1) - path.cumulativeLength(i);
+                    progressAtClosest = (path.cumulativeLength(i) + t * segmentLength) / totalLength;
                 }
-
-                accumulatedDist += segmentLength;
             }
 
             return progressAtClosest;
@@ -1956,9 +2477,66 @@ public class ResourceFlowTracker extends Addable {
 
             return distanceToSegment(px, py, x1, y1, x2, y2) <= maxDist;
         }
+    }
+
+    /**
+     * Corridor shared by several connections heading the same way, drawn once with the combined
+     * volume and resource composition of its members
+     */
+    private static class FlowTrunk {
+        // Busiest member: its path gives the trunk's direction and animation
+        final FlowConnection leader;
+        final double volume;
+        // Carried resources, heaviest first
+        final List<RESOURCE> resources = new ArrayList<>();
+
+        FlowTrunk(List<FlowConnection> members) {
+            FlowConnection busiest = members.get(0);
+            double total = 0;
+            List<FlowStream> streams = new ArrayList<>();
+            for (FlowConnection conn : members) {
+                double weight = conn.weight();
+                total += weight;
+                if (weight > busiest.weight()) busiest = conn;
+                streams.addAll(conn.streams);
+            }
+            this.leader = busiest;
+            this.volume = total;
+
+            streams.sort((a, b) -> Double.compare(b.weight, a.weight));
+            for (FlowStream stream : streams) {
+                if (!resources.contains(stream.resource)) resources.add(stream.resource);
+            }
+        }
+
+        RESOURCE resourceAt(int n) {
+            return resources.isEmpty() ? null : resources.get(Math.floorMod(n, resources.size()));
+        }
+    }
+
+    /**
+     * One resource hauled along a connection: particles, haul statistics and flow type
+     */
+    private static class FlowStream {
+        final FlowConnection connection;
+        final RESOURCE resource;
+        final FlowType flowType;
+        // Persistent statistics this stream was built from (observed trips are recorded here)
+        final FlowConnectionData flowData;
+        // Observed volume when the connection was built, for ordering streams
+        double weight = 0;
+        // Particle system slot, resolved on first spawn
+        int particleSlot = -1;
+
+        FlowStream(FlowConnection connection, FlowConnectionData flowData, FlowType flowType) {
+            this.connection = connection;
+            this.resource = flowData.resource;
+            this.flowType = flowType;
+            this.flowData = flowData;
+        }
 
-        // Simple tile representation for path rendering
-        record PathTile(int x, int y) {
+        double observedVolume(double currentTime) {
+            return flowData.recentTrips(currentTime);
         }
     }
 
@@ -1966,15 +2544,24 @@ public class ResourceFlowTracker extends Addable {
      * Tracks statistics for a persistent flow connection
      */
     private static class FlowConnectionData {
+        final long key; // Key in persistentFlows
         int sourceRoomIdx, destRoomIdx;
+        // Haulers were seen completing this exact route (else it is implied from industry relationships)
+        boolean observed = false;
+        // Implied flows: stands in for the source room's output (true) or the destination room's input
+        boolean impliedFromSource = false;
         int sourceRoomX, sourceRoomY;
         int destRoomX, destRoomY;
         RESOURCE resource;
         int tripCount = 0;
         double lastSeenTime = 0;
         double totalDistance = 0;
+        // Exponentially decayed trip count (time constant = activity window), as of recentTripsTime
+        double recentTrips = 0;
+        double recentTripsTime = 0;
 
-        FlowConnectionData(int srcIdx, int dstIdx, int srcX, int srcY, int dstX, int dstY, RESOURCE res) {
+        FlowConnectionData(long key, int srcIdx, int dstIdx, int srcX, int srcY, int dstX, int dstY, RESOURCE res) {
+            this.key = key;
             this.sourceRoomIdx = srcIdx;
             this.destRoomIdx = dstIdx;
             this.sourceRoomX = srcX;
@@ -1988,16 +2575,39 @@ public class ResourceFlowTracker extends Addable {
             tripCount++;
             lastSeenTime = time;
             totalDistance += distance;
+            recentTrips = recentTrips(time) + 1.0;
+            recentTripsTime = time;
+        }
+
+        // Observed trips, weighted towards the last few minutes
+        double recentTrips(double currentTime) {
+            double age = Math.max(0.0, currentTime - recentTripsTime);
+            return recentTrips * Math.exp(-age / 300.0);
         }
 
         // Returns true if this flow is still relevant (seen recently)
         boolean isActive(double currentTime) {
-            return (currentTime - lastSeenTime) < 300.0;
+            return currentTime < expiryTime();
+        }
+
+        // Game time at which this flow stops being active unless seen again
+        double expiryTime() {
+            return lastSeenTime + 300.0;
         }
 
         double avgDistance() {
             return tripCount > 0 ? totalDistance / tripCount : 0;
         }
+
+        /**
+         * @return true if this is an implied flow whose room is already covered by observed trips
+         */
+        boolean isCoveredBy(ObservedRouteGraph graph) {
+            if (observed) return false;
+            return impliedFromSource
+                ? graph.ships(sourceRoomIdx, resource.index())
+                : graph.receives(destRoomIdx, resource.index());
+        }
     }
 
     /**
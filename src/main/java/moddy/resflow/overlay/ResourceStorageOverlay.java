@@ -7,6 +7,7 @@ import init.sprite.SPRITES;
 import init.sprite.UI.UI;
 import moddy.resflow.ModConfig;
 import moddy.resflow.analysis.ResourceFlowAnalyzer;
+import moddy.resflow.ui.FilterContext;
 import moddy.resflow.ui.HorizontalResourcePanel;
 import settlement.main.SETT;
 import settlement.overlay.Addable;
@@ -23,9 +24,7 @@ import util.rendering.RenderData;
 import util.rendering.RenderData.RenderIterator;
 import view.main.VIEW;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Toggleable overlay showing resource storage amounts with visual scaling.
@@ -47,6 +46,13 @@ public class ResourceStorageOverlay extends Addable {
     private static final COLOR COLOR_MED_BAR = new ColorImp(50, 255, 50);        // Bright green
     private static final COLOR COLOR_HIGH_BAR = new ColorImp(255, 215, 0);       // Gold
     private static final COLOR COLOR_FULL_BAR = new ColorImp(255, 50, 50);       // Bright red
+    // Production/consumption room tints (chain view)
+    private static final COLOR COLOR_ROLE_BOTH_BG = new ColorImp(100, 100, 20);  // Yellow-ish for both
+    private static final COLOR COLOR_ROLE_PROD_BG = new ColorImp(20, 100, 20);   // Green for production
+    private static final COLOR COLOR_ROLE_CONS_BG = new ColorImp(100, 20, 20);   // Red for consumption
+    // Room role flags (roomRoles entries)
+    private static final byte ROLE_PRODUCES = 1;
+    private static final byte ROLE_CONSUMES = 2;
     private static final CharSequence ¤¤name = "Resource Storage";
     private static final CharSequence ¤¤desc = "Shows stockpile fill levels. Blue=empty, Green=partial, Gold=high, Red=full.";
 
@@ -54,16 +60,39 @@ public class ResourceStorageOverlay extends Addable {
         // Intentionally empty (localization hook could be added here).
     }
 
-    // Cache for stockpile fill levels (stockpile index -> total amount)
-    private final Map<Integer, StockpileData> stockpileCache = new HashMap<>();
+    // Unfiltered per-stockpile resource vectors, refreshed round-robin
+    private final StockpileResourceIndex stockpileIndex = new StockpileResourceIndex();
+    // View for the locked selection (or everything when nothing is selected/hovered)
+    private final StorageView filteredView = new StorageView(true);
+    // Precomputed view per hovered resource (RESOURCE.index()), refreshed in idle frames
+    private StorageView[] hoverViews = new StorageView[0];
+    private int hoverViewCursor = 0;
+    // Hover views are refreshed at most one view per interval / resource count, and only after the index changed
+    private double hoverRefreshTimer = 0.0;
+    private int staleHoverViews = 0;               // Rebuilds left until every view saw the last index change
+    // View the renderers read; hovering a resource just swaps this pointer
+    private StorageView activeView = filteredView;
+    private boolean indexBuilt = false;
+    // Grid-cell stockpile districts drawn instead of single stockpiles at far zoom and on the strategic map
+    private final StorageDistricts districts = new StorageDistricts();
+    private int[] districtAmounts = new int[0];    // Scratch sums by RESOURCE.index() while aggregating a district
+    private int[] districtCapacities = new int[0];
+    private int[] districtTouched = new int[0];
+    private int renderFrame = 0;                   // Draw pass counter, stamped on districts as they are drawn
+    // Produce/consume flags per room index for the filtered resources; rebuilt lazily after a filter or room change
+    private byte[] roomRoles = new byte[0];
+    private boolean roomRolesValid = false;
     // Track which stockpiles we've logged as missing to avoid spam
-    private final java.util.Set<Integer> loggedMissingStockpiles = new java.util.HashSet<>();
-    private final java.util.Set<Integer> loggedLargeStockpileChecks = new java.util.HashSet<>();
-    private double timeSinceLastUpdate = 0.0;
+    private boolean[] loggedMissingStockpiles = new boolean[0]; // Indexed by room instance index
     // Track last hovered resource and selection to detect changes
     private RESOURCE lastHoveredResource = null;
-    private int lastSelectedCount = 0;
-    private boolean lastChainToggleState = true;
+    private int lastSelectionVersion = 0;
+    // Stockpile content checksum: while unchanged, the index sweep pauses (paused game, static stockpiles)
+    private static final int MAX_SKIPPED_SWEEPS = 10;
+    private long lastContentFingerprint = 0;
+    private double fingerprintTimer = 0.0;
+    private boolean indexIdle = false;
+    private int skippedSweeps = 0;
 
     /**
      * Constructor - registers this as a proper overlay
@@ -85,84 +114,226 @@ public class ResourceStorageOverlay extends Addable {
 
     private RESOURCE getHoveredResource() {
         // Use horizontal panel
-        return HorizontalResourcePanel.currentlyHoveredResource;
+        return FilterContext.current().hovered;
     }
 
     /**
-     * Check if a resource should be displayed (either selected or hovered)
-     * Includes resource chain expansion when enabled
+     * Set the mask to exactly the given resources
      */
-    private boolean shouldDisplayResource(RESOURCE res) {
-        if (res == null) return false;
+    private static void fillMask(boolean[] mask, java.util.Set<RESOURCE> resources) {
+        java.util.Arrays.fill(mask, false);
+        if (resources == null) return;
+        for (RESOURCE res : resources) {
+            mask[res.index()] = true;
+        }
+    }
 
-        // If resources are locked, show locked resources + their chains
-        if (!HorizontalResourcePanel.selectedResources.isEmpty()) {
-            // Get the effective set (includes chain dependencies if enabled)
-            java.util.Set<RESOURCE> effectiveSet = HorizontalResourcePanel.getEffectiveSelectedResources();
-            return effectiveSet.contains(res);
+    /**
+     * Rebuild the selection view's mask: locked resources + their chains, or everything
+     */
+    private void rebuildFilteredMask() {
+        boolean[] mask = filteredView.mask(RESOURCES.ALL().size());
+        FilterContext filter = FilterContext.current();
+        if (filter.hasSelection) {
+            filter.fillMask(mask);
+        } else {
+            java.util.Arrays.fill(mask, true);
         }
+    }
 
-        // Otherwise show hovered resource + its chain, or all if nothing hovered
-        RESOURCE hovered = getHoveredResource();
-        if (hovered == null) {
-            return true;  // Show all
+    /**
+     * Rebuild the view shown while hovering one resource (resource + its chain when enabled)
+     */
+    private void rebuildHoverView(RESOURCE res) {
+        int n = RESOURCES.ALL().size();
+        if (hoverViews.length != n) {
+            hoverViews = new StorageView[n];
+        }
+        StorageView view = hoverViews[res.index()];
+        if (view == null) {
+            view = new StorageView(false);
+            hoverViews[res.index()] = view;
+        }
+
+        java.util.Set<RESOURCE> hoveredChain = new java.util.HashSet<>();
+        hoveredChain.add(res);
+        fillMask(view.mask(n), HorizontalResourcePanel.getExpandedResourceChain(hoveredChain));
+        view.chainState = HorizontalResourcePanel.showResourceChains;
+        rebuildView(view);
+    }
+
+    /**
+     * Hover view for a resource, built on demand if it was never built or the chain toggle changed
+     */
+    private StorageView hoverView(RESOURCE res) {
+        StorageView view = res.index() < hoverViews.length ? hoverViews[res.index()] : null;
+        if (view == null || view.chainState != HorizontalResourcePanel.showResourceChains) {
+            rebuildHoverView(res);
+            view = hoverViews[res.index()];
         }
+        return view;
+    }
 
-        // Check if this resource is in the hovered resource's chain
-        if (HorizontalResourcePanel.showResourceChains) {
-            java.util.Set<RESOURCE> hoveredChain = new java.util.HashSet<>();
-            hoveredChain.add(hovered);
-            java.util.Set<RESOURCE> expandedChain = HorizontalResourcePanel.getExpandedResourceChain(hoveredChain);
-            return expandedChain.contains(res);
+    /**
+     * Idle-time refresh: rebuild the next hover view round-robin so switching hover is always a pointer swap.
+     * Paced so every view is rebuilt once per refresh interval, and only while the index is changing
+     * (nothing to do while paused or while the index sweep idles).
+     */
+    private void refreshHoverViews(double ds) {
+        int n = RESOURCES.ALL().size();
+        if (stockpileIndex.dirtyCount() > 0) {
+            staleHoverViews = n;
         }
+        if (indexIdle || staleHoverViews == 0 || n == 0) return;
 
-        return hovered == res;
+        hoverRefreshTimer += ds;
+        if (hoverRefreshTimer < cacheUpdateInterval() / n) return;
+        hoverRefreshTimer = 0.0;
+
+        if (hoverViewCursor >= n) hoverViewCursor = 0;
+        rebuildHoverView(RESOURCES.ALL().get(hoverViewCursor++));
+        staleHoverViews--;
     }
 
     public void invalidateCache() {
-        stockpileCache.clear();
+        filteredView.clear();
+        hoverViews = new StorageView[0];
+        activeView = filteredView;
+        indexBuilt = false;
+        districts.reset();
+        indexIdle = false;
+        skippedSweeps = 0;
+        staleHoverViews = 0;
+        hoverRefreshTimer = 0.0;
+        roomRolesValid = false;
     }
 
     /**
-     * Update cache periodically or when hovered resource, selection, or chain toggle changes
+     * Refresh a slice of the stockpile index every frame, and swap views when hovered resource,
+     * selection, or chain toggle changes
      */
     public void update(double ds) {
         if (!added()) return;
 
-        RESOURCE currentHovered = getHoveredResource();
-        boolean currentChainState = HorizontalResourcePanel.showResourceChains;
-
-        // Check if hovered resource, selection, or chain toggle changed
-        boolean hoveredChanged = (currentHovered != lastHoveredResource);
-        boolean selectionChanged = lastSelectedCount != HorizontalResourcePanel.selectedResources.size();
-        boolean chainToggleChanged = (currentChainState != lastChainToggleState);
-
-        if (hoveredChanged || selectionChanged || chainToggleChanged) {
-            lastHoveredResource = currentHovered;
-            lastSelectedCount = HorizontalResourcePanel.selectedResources.size();
-            lastChainToggleState = currentChainState;
-            // Debug logging
-            ModConfig.debug("StorageOverlay: Filter changed (hover: " + (currentHovered != null ? currentHovered.name : "null") +
-                ", selected: " + lastSelectedCount +
-                ", chains: " + currentChainState + "), rebuilding cache");
-            // Immediately rebuild cache when filter changes
-            rebuildCache();
-            timeSinceLastUpdate = 0.0;
-            return;
+        boolean firstBuild = !indexBuilt;
+        try {
+            if (!indexBuilt) {
+                stockpileIndex.refreshAll();
+                indexBuilt = true;
+            } else if (!skipIndexRefresh(ds)) {
+                stockpileIndex.refresh(ds, cacheUpdateInterval());
+            }
+            if (districts.syncCellSize(ModConfig.STORAGE_DISTRICT_SIZE)) {
+                addAllDistrictMembers();
+            }
+        } catch (Exception e) {
+            snake2d.LOG.err("StorageOverlay: Error refreshing stockpile index: " + e.getMessage());
         }
 
-        // Otherwise rebuild periodically
-        timeSinceLastUpdate += ds;
-        if (stockpileCache.isEmpty() || timeSinceLastUpdate >= cacheUpdateInterval()) {
-            rebuildCache();
-            timeSinceLastUpdate = 0.0;
+        FilterContext filter = FilterContext.current();
+
+        // Check if hovered resource, or selection / chain toggle changed (the room filter does not matter here)
+        boolean hoveredChanged = (filter.hovered != lastHoveredResource);
+        boolean selectionChanged = filter.selectionVersion != lastSelectionVersion;
+
+        try {
+            if (firstBuild || hoveredChanged || selectionChanged) {
+                lastHoveredResource = filter.hovered;
+                lastSelectionVersion = filter.selectionVersion;
+                // Debug logging
+                ModConfig.debug("StorageOverlay: Filter changed (hover: " + (filter.hovered != null ? filter.hovered.name : "null") +
+                    ", visible: " + (filter.showAll ? "all" : filter.resources().size()) +
+                    ", chains: " + HorizontalResourcePanel.showResourceChains + ")");
+
+                roomRolesValid = false;
+                // Only the selection view depends on the selection / chain toggle
+                if (firstBuild || selectionChanged) {
+                    rebuildCache();
+                }
+                selectActiveView();
+            } else {
+                // Idle frame: keep the precomputed hover views fresh
+                refreshHoverViews(ds);
+            }
+
+            // Re-filter only the stockpiles refreshed this frame
+            applyRefreshedStockpiles();
+        } catch (Exception e) {
+            snake2d.LOG.err("StorageOverlay: Error updating views: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Once per refresh interval, checksum rooms and stockpile totals; if nothing changed since the
+     * last check the index sweep idles for the next interval. Forced back on every MAX_SKIPPED_SWEEPS
+     * intervals, since moving goods between two stockpiles keeps the totals unchanged.
+     *
+     * @return true if the index should not be refreshed this frame
+     */
+    private boolean skipIndexRefresh(double ds) {
+        fingerprintTimer += ds;
+        if (fingerprintTimer >= cacheUpdateInterval()) {
+            fingerprintTimer = 0.0;
+            long fingerprint = SettlementFingerprint.rooms() * 31 + SettlementFingerprint.stockpileTotals();
+            if (fingerprint == lastContentFingerprint && skippedSweeps < MAX_SKIPPED_SWEEPS) {
+                indexIdle = true;
+                skippedSweeps++;
+            } else {
+                indexIdle = false;
+                skippedSweeps = 0;
+                if (fingerprint != lastContentFingerprint) {
+                    roomRolesValid = false;
+                }
+            }
+            lastContentFingerprint = fingerprint;
+        }
+        return indexIdle;
+    }
+
+    /**
+     * Point the renderers at the selection view, or at the hovered resource's precomputed view
+     */
+    private void selectActiveView() {
+        RESOURCE hovered = getHoveredResource();
+        if (!FilterContext.current().hasSelection && hovered != null) {
+            activeView = hoverView(hovered);
+        } else {
+            activeView = filteredView;
         }
+        districts.markAllDirty();
+    }
+
+    /**
+     * Update cached data for stockpiles the index refreshed since the last call
+     * (selection view and the visible hover view; other hover views catch up round-robin)
+     */
+    private void applyRefreshedStockpiles() {
+        for (int k = 0; k < stockpileIndex.dirtyCount(); k++) {
+            StockpileResourceIndex.Entry entry = stockpileIndex.get(stockpileIndex.dirtyAt(k));
+            // Drop the room this slot used to describe, unless another slot took it over
+            int stale = entry.staleRoomIndex;
+            if (stale >= 0 && !stockpileIndex.isTracked(stale)) {
+                filteredView.remove(stale);
+                activeView.remove(stale);
+                districts.remove(stale);
+            }
+            filteredView.apply(entry, this);
+            if (activeView != filteredView) {
+                activeView.apply(entry, this);
+            }
+            if (entry.roomIndex >= 0 && entry.instance != null) {
+                districts.add(entry.instance);
+            }
+            entry.staleRoomIndex = -1;
+        }
+        stockpileIndex.clearDirty();
     }
 
     @Override
     public void initBelow(RenderData data) {
-        if (stockpileCache.isEmpty()) {
+        if (filteredView.isEmpty()) {
             rebuildCache();
+            selectActiveView();
         }
     }
 
@@ -176,15 +347,23 @@ public class ResourceStorageOverlay extends Addable {
         // Handle stockpiles
         if (room.blueprint() instanceof ROOM_STOCKPILE) {
             StockpileInstance instance = (StockpileInstance) room;
-            StockpileData data = stockpileCache.get(instance.index());
+            StockpileData data = activeView.get(instance.index());
 
-            // Debug logging for missing cache entries
+            // Debug logging for missing cache entries (hover views only hold stockpiles with matches)
             if (data == null) {
+                if (!activeView.complete) {
+                    return;
+                }
                 // Only log once per stockpile to avoid spam
-                if (!loggedMissingStockpiles.contains(instance.index())) {
-                    ModConfig.debug("StorageOverlay: No cache data for stockpile " + instance.index() +
+                int roomIndex = instance.index();
+                if (roomIndex >= loggedMissingStockpiles.length) {
+                    loggedMissingStockpiles = Arrays.copyOf(loggedMissingStockpiles,
+                        Math.max(roomIndex + 1, SETT.ROOMS().map.max()));
+                }
+                if (!loggedMissingStockpiles[roomIndex]) {
+                    ModConfig.debug("StorageOverlay: No cache data for stockpile " + roomIndex +
                         " (area=" + instance.area() + " tiles)");
-                    loggedMissingStockpiles.add(instance.index());
+                    loggedMissingStockpiles[roomIndex] = true;
                 }
                 return;
             }
@@ -241,8 +420,7 @@ public class ResourceStorageOverlay extends Addable {
      * Check if filters are active (selected resources or hovered resource)
      */
     private boolean hasActiveFilters() {
-        return !HorizontalResourcePanel.selectedResources.isEmpty() ||
-            HorizontalResourcePanel.currentlyHoveredResource != null;
+        return !FilterContext.current().showAll;
     }
 
     /**
@@ -253,53 +431,79 @@ public class ResourceStorageOverlay extends Addable {
             return;
         }
 
-        // Get filtered resources
-        java.util.Set<RESOURCE> filteredResources = HorizontalResourcePanel.getEffectiveSelectedResources();
-        if (filteredResources.isEmpty() && HorizontalResourcePanel.currentlyHoveredResource != null) {
-            filteredResources = new java.util.HashSet<>();
-            filteredResources.add(HorizontalResourcePanel.currentlyHoveredResource);
-            filteredResources = HorizontalResourcePanel.getExpandedResourceChain(filteredResources);
-        }
-
-        if (filteredResources.isEmpty()) {
+        int role = roomRole(instance.index());
+        if (role == 0) {
             return;
         }
 
-        // Check if this room produces or consumes any filtered resources
-        boolean produces = false;
-        boolean consumes = false;
-
-        for (RESOURCE res : filteredResources) {
-            if (ResourceFlowAnalyzer.roomProducesResource(instance, res)) {
-                produces = true;
-            }
-            if (ResourceFlowAnalyzer.roomConsumesResource(instance, res)) {
-                consumes = true;
-            }
+        // Render subtle background tint
+        if (role == (ROLE_PRODUCES | ROLE_CONSUMES)) {
+            COLOR_ROLE_BOTH_BG.bind();
+        } else if (role == ROLE_PRODUCES) {
+            COLOR_ROLE_PROD_BG.bind();
+        } else {
+            COLOR_ROLE_CONS_BG.bind();
         }
+        SPRITES.cons().BIG.filled_striped.render(r, 0x03, it.x(), it.y());  // Very subtle pattern
+        COLOR.unbind();
+    }
 
-        if (!produces && !consumes) {
-            return;
+    /**
+     * @return produce/consume flags of the room for the filtered resources (0 if it does neither)
+     */
+    private int roomRole(int roomIndex) {
+        if (!roomRolesValid) {
+            rebuildRoomRoles();
         }
+        return roomIndex >= 0 && roomIndex < roomRoles.length ? roomRoles[roomIndex] : 0;
+    }
 
-        // Render subtle background tint
-        ColorImp roomColor = new ColorImp();
-        if (produces && consumes) {
-            roomColor.set(100, 100, 20);  // Yellow-ish for both
-        } else if (produces) {
-            roomColor.set(20, 100, 20);   // Green for production
+    /**
+     * Classify every non-stockpile room once against the filtered resources (selection + chains,
+     * or the hovered resource's chain), so the per-tile chain rendering is a single array read
+     */
+    private void rebuildRoomRoles() {
+        roomRolesValid = true;
+        int roomMax = SETT.ROOMS().map.max();
+        if (roomRoles.length < roomMax) {
+            roomRoles = new byte[roomMax];
         } else {
-            roomColor.set(100, 20, 20);   // Red for consumption
+            Arrays.fill(roomRoles, (byte) 0);
         }
 
-        roomColor.bind();
-        SPRITES.cons().BIG.filled_striped.render(r, 0x03, it.x(), it.y());  // Very subtle pattern
-        COLOR.unbind();
+        try {
+            // Selection or hovered resource, chain-expanded, from the shared filter snapshot
+            java.util.List<RESOURCE> filteredResources = FilterContext.current().resources();
+            if (filteredResources.isEmpty()) {
+                return;
+            }
+
+            for (int i = 0; i < roomMax; i++) {
+                Room room = SETT.ROOMS().map.getByIndex(i);
+                if (!(room instanceof RoomInstance instance) || room.blueprint() instanceof ROOM_STOCKPILE) continue;
+                if (instance.index() >= roomRoles.length) continue;
+
+                byte role = 0;
+                for (RESOURCE res : filteredResources) {
+                    if (ResourceFlowAnalyzer.roomProducesResource(instance, res)) {
+                        role |= ROLE_PRODUCES;
+                    }
+                    if (ResourceFlowAnalyzer.roomConsumesResource(instance, res)) {
+                        role |= ROLE_CONSUMES;
+                    }
+                    if (role == (ROLE_PRODUCES | ROLE_CONSUMES)) break;
+                }
+                roomRoles[instance.index()] = role;
+            }
+        } catch (Exception e) {
+            snake2d.LOG.err("StorageOverlay: Error classifying rooms: " + e.getMessage());
+        }
     }
 
     @Override
     public void initAbove(RenderData data) {
-        // Nothing special needed
+        // New draw pass: every district may be drawn once again
+        renderFrame++;
     }
 
     @Override
@@ -312,6 +516,15 @@ public class ResourceStorageOverlay extends Addable {
         // Handle stockpiles
         if (room.blueprint() instanceof ROOM_STOCKPILE) {
             StockpileInstance instance = (StockpileInstance) room;
+            int zoomLevel = VIEW.s().getWindow().zoomout();
+
+            // Far zoom: one summary per district, drawn by whichever visible member tile reaches it first
+            if (zoomLevel >= 3) {
+                StorageDistricts.District district = districts.ofRoom(instance.index());
+                if (district != null) {
+                    return renderDistrict(r, it, district);
+                }
+            }
 
             // For stockpile details, we want to render once per stockpile, not once per tile
             // Use the first tile we encounter (top-left) for rendering
@@ -323,8 +536,7 @@ public class ResourceStorageOverlay extends Addable {
                 return false;
             }
 
-            int zoomLevel = VIEW.s().getWindow().zoomout();
-            StockpileData data = stockpileCache.get(instance.index());
+            StockpileData data = activeView.get(instance.index());
 
             if (data == null || data.totalAmount == 0) {
                 return false;
@@ -350,34 +562,12 @@ public class ResourceStorageOverlay extends Addable {
             return false;
         }
 
-        // Get filtered resources
-        java.util.Set<RESOURCE> filteredResources = HorizontalResourcePanel.getEffectiveSelectedResources();
-        if (filteredResources.isEmpty() && HorizontalResourcePanel.currentlyHoveredResource != null) {
-            filteredResources = new java.util.HashSet<>();
-            filteredResources.add(HorizontalResourcePanel.currentlyHoveredResource);
-            filteredResources = HorizontalResourcePanel.getExpandedResourceChain(filteredResources);
-        }
-
-        if (filteredResources.isEmpty()) {
-            return false;
-        }
-
-        // Check what this room does with filtered resources
-        boolean produces = false;
-        boolean consumes = false;
-
-        for (RESOURCE res : filteredResources) {
-            if (ResourceFlowAnalyzer.roomProducesResource(instance, res)) {
-                produces = true;
-            }
-            if (ResourceFlowAnalyzer.roomConsumesResource(instance, res)) {
-                consumes = true;
-            }
-        }
-
-        if (!produces && !consumes) {
+        int role = roomRole(instance.index());
+        if (role == 0) {
             return false;
         }
+        boolean produces = (role & ROLE_PRODUCES) != 0;
+        boolean consumes = (role & ROLE_CONSUMES) != 0;
 
         int zoomLevel = VIEW.s().getWindow().zoomout();
         int iconSize = (zoomLevel >= 3) ? 128 : (zoomLevel == 2) ? 64 : (zoomLevel == 1) ? 48 : 32;
@@ -441,6 +631,106 @@ public class ResourceStorageOverlay extends Addable {
         return true;
     }
 
+    /**
+     * Zoom 3: draw the district's aggregated bar once per frame, centred on its stored goods
+     */
+    private boolean renderDistrict(Renderer r, RenderIterator it, StorageDistricts.District district) {
+        if (district.drawnFrame == renderFrame) {
+            return false;
+        }
+        district.drawnFrame = renderFrame;
+        if (district.dirty) {
+            aggregateDistrict(district);
+        }
+        if (district.data.totalAmount == 0) {
+            return false;
+        }
+
+        int centerX = (district.centerX - it.tx()) * C.TILE_SIZE + it.x() + C.TILE_SIZE / 2;
+        int centerY = (district.centerY - it.ty()) * C.TILE_SIZE + it.y() + C.TILE_SIZE / 2;
+        renderZoom3StorageBar(r, centerX, centerY, district.data);
+        return true;
+    }
+
+    /**
+     * Sum the shown view over a district's stockpiles: totals, capacity, top resources and bounds.
+     * Composition is merged from each stockpile's top resources, so very minor goods may be left out.
+     */
+    private void aggregateDistrict(StorageDistricts.District district) {
+        int n = RESOURCES.ALL().size();
+        if (districtAmounts.length < n) {
+            districtAmounts = new int[n];
+            districtCapacities = new int[n];
+            districtTouched = new int[n];
+        }
+
+        StockpileData agg = district.data;
+        agg.topCount = 0;
+        int total = 0;
+        int capacity = 0;
+        int touched = 0;
+        long weightedX = 0;
+        long weightedY = 0;
+        int x1 = Integer.MAX_VALUE, y1 = Integer.MAX_VALUE, x2 = Integer.MIN_VALUE, y2 = Integer.MIN_VALUE;
+
+        for (int m = 0; m < district.memberCount; m++) {
+            int roomIndex = district.members[m];
+            if (!(SETT.ROOMS().map.getByIndex(roomIndex) instanceof RoomInstance instance)) continue;
+            x1 = Math.min(x1, instance.body().x1());
+            y1 = Math.min(y1, instance.body().y1());
+            x2 = Math.max(x2, instance.body().x2());
+            y2 = Math.max(y2, instance.body().y2());
+
+            StockpileData data = activeView.get(roomIndex);
+            if (data == null) continue;
+            total += data.totalAmount;
+            capacity += data.capacity;
+            weightedX += (long) instance.body().cX() * data.totalAmount;
+            weightedY += (long) instance.body().cY() * data.totalAmount;
+            for (int i = 0; i < data.topCount; i++) {
+                if (data.topResources[i] == null) continue;
+                int resIdx = data.topResources[i].index();
+                if (districtAmounts[resIdx] == 0) {
+                    districtTouched[touched++] = resIdx;
+                }
+                districtAmounts[resIdx] += data.topAmounts[i];
+                districtCapacities[resIdx] += data.topCapacities[i];
+            }
+        }
+
+        for (int k = 0; k < touched; k++) {
+            int resIdx = districtTouched[k];
+            agg.offer(resIdx, districtAmounts[resIdx], districtCapacities[resIdx]);
+            districtAmounts[resIdx] = 0;
+            districtCapacities[resIdx] = 0;
+        }
+        agg.totalAmount = total;
+        agg.capacity = capacity;
+
+        if (x1 > x2) {
+            x1 = y1 = x2 = y2 = 0;
+        }
+        district.x1 = x1;
+        district.y1 = y1;
+        district.x2 = x2;
+        district.y2 = y2;
+        district.centerX = total > 0 ? (int) (weightedX / total) : (x1 + x2) / 2;
+        district.centerY = total > 0 ? (int) (weightedY / total) : (y1 + y2) / 2;
+        district.dirty = false;
+    }
+
+    /**
+     * Re-add every known stockpile after the district grid was reset
+     */
+    private void addAllDistrictMembers() {
+        for (int i = 0; i < stockpileIndex.size(); i++) {
+            StockpileResourceIndex.Entry entry = stockpileIndex.get(i);
+            if (entry.roomIndex >= 0 && entry.instance != null) {
+                districts.add(entry.instance);
+            }
+        }
+    }
+
     @Override
     public void finishAbove() {
         // Nothing to clean up
@@ -469,14 +759,14 @@ public class ResourceStorageOverlay extends Addable {
         COLOR.unbind();
 
         // Draw top resource icon on the bar (if any)
-        if (!data.resources.isEmpty()) {
-            ResourceAmount top = data.resources.get(0);
-            if (top.resource != null && top.resource.icon() != null) {
+        if (data.topCount > 0) {
+            RESOURCE top = data.topResources[0];
+            if (top != null && top.icon() != null) {
                 int iconSize = 160;  // 20 * 8
                 int iconX = cx - iconSize / 2;
                 int iconY = barY - iconSize - 16;
                 COLOR.WHITE100.bind();
-                top.resource.icon().render(r, iconX, iconX + iconSize, iconY, iconY + iconSize);
+                top.icon().render(r, iconX, iconX + iconSize, iconY, iconY + iconSize);
                 COLOR.unbind();
             }
         }
@@ -492,7 +782,7 @@ public class ResourceStorageOverlay extends Addable {
     private void renderZoom2StackedView(Renderer r, int cx, int cy, StockpileData data) {
 
         int maxResources = 3;
-        int resourcesToShow = Math.min(data.resources.size(), maxResources);
+        int resourcesToShow = Math.min(data.topCount, maxResources);
         if (resourcesToShow == 0) return;
 
         int iconSize = 128;  // 32 * 4
@@ -503,19 +793,20 @@ public class ResourceStorageOverlay extends Addable {
         int startY = cy - totalHeight / 2;
 
         for (int i = 0; i < resourcesToShow; i++) {
-            ResourceAmount resAmt = data.resources.get(i);
-            if (resAmt.resource == null || resAmt.resource.icon() == null) continue;
+            RESOURCE res = data.topResources[i];
+            int amount = data.topAmounts[i];
+            if (res == null || res.icon() == null) continue;
 
             int y = startY + i * spacing;
 
             // Icon
             int iconX = cx - barWidth / 2 - iconSize - 16;
             COLOR.WHITE100.bind();
-            resAmt.resource.icon().render(r, iconX, iconX + iconSize, y, y + iconSize);
+            res.icon().render(r, iconX, iconX + iconSize, y, y + iconSize);
             COLOR.unbind();
 
             // Bar showing relative amount (as proportion of this stockpile)
-            double proportion = Math.min(1.0, (double) resAmt.amount / Math.max(1, data.totalAmount));
+            double proportion = Math.min(1.0, (double) amount / Math.max(1, data.totalAmount));
             int fillWidth = (int) (barWidth * proportion);
 
             int barX = cx - barWidth / 2;
@@ -528,7 +819,7 @@ public class ResourceStorageOverlay extends Addable {
             fillColor.render(r, barX, barX + fillWidth, barY, barY + barHeight);
 
             // Amount text
-            renderAmountText(r, resAmt.amount, cx + barWidth / 2 + 80, barY + barHeight / 2 - 16, 2);
+            renderAmountText(r, amount, cx + barWidth / 2 + 80, barY + barHeight / 2 - 16, 2);
         }
     }
 
@@ -540,7 +831,7 @@ public class ResourceStorageOverlay extends Addable {
 
         int maxResources = 4;
         int iconSize = 96;  // 48 * 2
-        int resourcesToShow = Math.min(data.resources.size(), maxResources);
+        int resourcesToShow = Math.min(data.topCount, maxResources);
         if (resourcesToShow == 0) return;
 
         int spacing = iconSize + 16;
@@ -548,19 +839,20 @@ public class ResourceStorageOverlay extends Addable {
         int startX = cx - totalWidth / 2;
 
         for (int i = 0; i < resourcesToShow; i++) {
-            ResourceAmount resAmt = data.resources.get(i);
-            if (resAmt.resource == null || resAmt.resource.icon() == null) continue;
+            RESOURCE res = data.topResources[i];
+            int amount = data.topAmounts[i];
+            if (res == null || res.icon() == null) continue;
 
             int x = startX + i * spacing;
 
             // Icon
             COLOR.WHITE100.bind();
-            resAmt.resource.icon().render(r, x, x + iconSize, cy - iconSize / 2 - 16, cy + iconSize / 2 - 16);
+            res.icon().render(r, x, x + iconSize, cy - iconSize / 2 - 16, cy + iconSize / 2 - 16);
             COLOR.unbind();
 
             // Fill bar below icon
             int barHeight = 12;  // 6 * 2
-            double ratio = Math.min(1.0, (double) resAmt.amount / Math.max(1, data.capacity / 4));
+            double ratio = Math.min(1.0, (double) amount / Math.max(1, data.topCapacities[i]));
             int fillWidth = (int) (iconSize * Math.min(1.0, ratio));
 
             int barY = cy + iconSize / 2 - 12;
@@ -569,7 +861,7 @@ public class ResourceStorageOverlay extends Addable {
             fillColor.render(r, x, x + fillWidth, barY, barY + barHeight);
 
             // Amount
-            renderAmountText(r, resAmt.amount, x + iconSize / 2, barY + barHeight + 4, 1);
+            renderAmountText(r, amount, x + iconSize / 2, barY + barHeight + 4, 1);
         }
     }
 
@@ -580,7 +872,7 @@ public class ResourceStorageOverlay extends Addable {
 
         int maxResources = 5;
         int iconSize = 56;
-        int resourcesToShow = Math.min(data.resources.size(), maxResources);
+        int resourcesToShow = Math.min(data.topCount, maxResources);
         if (resourcesToShow == 0) return;
 
         int spacing = iconSize + 16;
@@ -597,13 +889,14 @@ public class ResourceStorageOverlay extends Addable {
         fillColor.render(r, startX, startX + fillWidth, barY, barY + barHeight);
 
         for (int i = 0; i < resourcesToShow; i++) {
-            ResourceAmount resAmt = data.resources.get(i);
-            if (resAmt.resource == null || resAmt.resource.icon() == null) continue;
+            RESOURCE res = data.topResources[i];
+            int amount = data.topAmounts[i];
+            if (res == null || res.icon() == null) continue;
 
             int x = startX + i * spacing;
 
             // Pulse for high amounts
-            if (resAmt.amount >= 100) {
+            if (amount >= 100) {
                 double time = VIEW.renderSecond() * 1.5;
                 double pulse = MATH.mod(time, 2);
                 pulse = MATH.distanceC(pulse, 1, 2);
@@ -616,11 +909,11 @@ public class ResourceStorageOverlay extends Addable {
             }
 
             // Icon
-            resAmt.resource.icon().render(r, x, x + iconSize, cy - iconSize / 2, cy + iconSize / 2);
+            res.icon().render(r, x, x + iconSize, cy - iconSize / 2, cy + iconSize / 2);
             COLOR.unbind();
 
             // Amount below icon
-            renderAmountText(r, resAmt.amount, x + iconSize / 2, cy + iconSize / 2 + 4, 0);
+            renderAmountText(r, amount, x + iconSize / 2, cy + iconSize / 2 + 4, 0);
         }
     }
 
@@ -754,22 +1047,22 @@ public class ResourceStorageOverlay extends Addable {
 
         int zoom = window.zoomout();
 
-        // Render stockpile background colors
-        for (int i = 0; i < SETT.ROOMS().STOCKPILE.instancesSize(); i++) {
-            StockpileInstance instance = SETT.ROOMS().STOCKPILE.getInstance(i);
-            if (instance == null) continue;
-
-            StockpileData data = stockpileCache.get(instance.index());
-            if (data == null || data.totalAmount <= 0) continue;
+        // Render one rectangle per district (bounds of its stockpiles, aggregated fill)
+        for (int i = 0; i < districts.size(); i++) {
+            StorageDistricts.District district = districts.get(i);
+            if (district.memberCount == 0) continue;
+            if (district.dirty) {
+                aggregateDistrict(district);
+            }
+            if (district.data.totalAmount <= 0) continue;
 
-            COLOR col = getColorForRatio(data.fillRatio(), false);
+            COLOR col = getColorForRatio(district.data.fillRatio(), false);
             col.bind();
 
-            // Draw a rectangle for the stockpile on the minimap
-            int x1 = absBounds.x1() + ((instance.body().x1() * C.TILE_SIZE - window.pixels().x1()) >> zoom);
-            int y1 = absBounds.y1() + ((instance.body().y1() * C.TILE_SIZE - window.pixels().y1()) >> zoom);
-            int x2 = absBounds.x1() + ((instance.body().x2() * C.TILE_SIZE - window.pixels().x1()) >> zoom);
-            int y2 = absBounds.y1() + ((instance.body().y2() * C.TILE_SIZE - window.pixels().y1()) >> zoom);
+            int x1 = absBounds.x1() + ((district.x1 * C.TILE_SIZE - window.pixels().x1()) >> zoom);
+            int y1 = absBounds.y1() + ((district.y1 * C.TILE_SIZE - window.pixels().y1()) >> zoom);
+            int x2 = absBounds.x1() + ((district.x2 * C.TILE_SIZE - window.pixels().x1()) >> zoom);
+            int y2 = absBounds.y1() + ((district.y2 * C.TILE_SIZE - window.pixels().y1()) >> zoom);
 
             if (x2 > x1 && y2 > y1) {
                 col.render(r, x1, x2, y1, y2);
@@ -779,78 +1072,24 @@ public class ResourceStorageOverlay extends Addable {
     }
 
     /**
-     * Rebuild the stockpile cache based on selected/hovered resources
+     * Rebuild the selection view based on selected resources
+     * Reads only the stockpile index, so the cost is O(stockpiles x resources held), not x all resources
      */
     private void rebuildCache() {
-        stockpileCache.clear();
-        loggedMissingStockpiles.clear();  // Reset logging for new cache
-        loggedLargeStockpileChecks.clear();  // Reset large stockpile logging
-        int stockpilesProcessed = 0;
-        int stockpilesWithResources = 0;
+        Arrays.fill(loggedMissingStockpiles, false);  // Reset logging for new cache
 
         try {
-            int totalStockpiles = SETT.ROOMS().STOCKPILE.instancesSize();
-
-            for (int i = 0; i < totalStockpiles; i++) {
-                StockpileInstance instance = SETT.ROOMS().STOCKPILE.getInstance(i);
-                if (instance == null) {
-                    continue;
-                }
-
-                stockpilesProcessed++;
-
-                int totalAmount = 0;
-                int capacity = 0;
-                java.util.List<ResourceAmount> resourceList = new java.util.ArrayList<>();
-
-                try {
-                    // Calculate totals for filtered resources
-                    for (RESOURCE res : RESOURCES.ALL()) {
-                        // Filter by selected or hovered resources
-                        if (!shouldDisplayResource(res)) {
-                            continue;
-                        }
-
-                        try {
-                            int amt = SETT.ROOMS().STOCKPILE.tally().amount.get(res, instance);
-                            if (amt > 0) {
-                                totalAmount += amt;
-                                resourceList.add(new ResourceAmount(res, amt));
-                            }
-                        } catch (Exception resEx) {
-                            // Skip this resource but continue with others
-                            snake2d.LOG.err("StorageOverlay: Error reading resource " + res.name +
-                                " from stockpile " + instance.index() + ": " + resEx.getMessage());
-                        }
-                    }
-
-                    // Sort resources by amount (descending)
-                    resourceList.sort((a, b) -> Integer.compare(b.amount, a.amount));
-
-                    // Estimate capacity (each storage tile can hold ~100 of each resource)
-                    // This is approximate - real capacity depends on room size
-                    capacity = instance.area() * 50;  // Rough estimate
-
-                    // ALWAYS add to cache, even if empty - this lets us distinguish between
-                    // "not processed yet" (null) and "processed but empty" (totalAmount=0)
-                    stockpileCache.put(instance.index(), new StockpileData(
-                        totalAmount, capacity, resourceList
-                    ));
-
-                    if (totalAmount > 0) {
-                        stockpilesWithResources++;
-                    }
-
-                } catch (Exception stockpileEx) {
-                    snake2d.LOG.err("StorageOverlay: Error processing stockpile " + i +
-                        " (index=" + instance.index() + "): " + stockpileEx.getMessage());
-                    // Add empty entry to prevent repeated errors
-                    stockpileCache.put(instance.index(), new StockpileData(0, 0, new java.util.ArrayList<>()));
-                }
+            if (!indexBuilt) {
+                stockpileIndex.refreshAll();
+                indexBuilt = true;
             }
+            rebuildFilteredMask();
+            // The selection view holds every stockpile, so size it for the whole room table up front
+            filteredView.ensureCapacity(SETT.ROOMS().map.max());
+            rebuildView(filteredView);
 
-            ModConfig.debug("StorageOverlay: Rebuilt cache - processed " + stockpilesProcessed +
-                "/" + totalStockpiles + " stockpiles, " + stockpilesWithResources + " have filtered resources");
+            ModConfig.debug("StorageOverlay: Rebuilt cache - " + filteredView.size() +
+                " stockpiles, " + filteredView.totalAmount() + " filtered items");
 
         } catch (Exception e) {
             snake2d.LOG.err("StorageOverlay rebuildCache critical error: " + e.getMessage());
@@ -860,6 +1099,51 @@ public class ResourceStorageOverlay extends Addable {
         }
     }
 
+    /**
+     * Rebuild a whole view from the stockpile index, reusing the view's existing data objects
+     */
+    private void rebuildView(StorageView view) {
+        if (view == activeView) {
+            districts.markAllDirty();
+        }
+        int stamp = ++view.stamp;
+        for (int i = 0; i < stockpileIndex.size(); i++) {
+            StockpileResourceIndex.Entry entry = stockpileIndex.get(i);
+            if (entry.roomIndex < 0) continue;
+            StockpileData data = view.get(entry.roomIndex);
+            if (data == null) {
+                data = new StockpileData();
+            }
+            fillStockpileData(data, entry, view.mask);
+            data.stamp = stamp;
+            view.put(entry.roomIndex, data);
+        }
+        // Drop stockpiles that no longer exist
+        view.removeUnstamped(stamp);
+    }
+
+    /**
+     * Filter one stockpile's resource vector through a resource mask.
+     * Keeps only the top {@link StockpileData#TOP_K} resources by amount (bounded insertion, no sort).
+     */
+    private void fillStockpileData(StockpileData data, StockpileResourceIndex.Entry entry, boolean[] mask) {
+        int totalAmount = 0;
+        int capacity = 0;
+        data.topCount = 0;
+        for (int k = 0; k < entry.size; k++) {
+            int resIdx = entry.resources[k];
+            if (resIdx >= mask.length || !mask[resIdx]) continue;
+            int amt = entry.amounts[k];
+            totalAmount += amt;
+            capacity += entry.capacities[k];
+            if (amt > 0) {
+                data.offer(resIdx, amt, entry.capacities[k]);
+            }
+        }
+        data.totalAmount = totalAmount;
+        data.capacity = capacity;
+    }
+
     /**
      * Get status text for UI display
      */
@@ -869,33 +1153,147 @@ public class ResourceStorageOverlay extends Addable {
         }
 
         RESOURCE hovered = getHoveredResource();
-        int totalStored = stockpileCache.values().stream()
-            .mapToInt(d -> d.totalAmount).sum();
+        int totalStored = activeView.totalAmount();
 
         if (hovered == null) {
             return String.format("Storage: %d stockpiles, %d total items",
-                stockpileCache.size(), totalStored);
+                activeView.size(), totalStored);
         } else {
             return String.format("Storage (%s): %d items across %d stockpiles",
-                hovered.name, totalStored, stockpileCache.size());
+                hovered.name, totalStored, activeView.size());
         }
     }
 
     /**
-     * Cached data for a stockpile
-     *
-     * @param resources All resources, sorted by amount
+     * Cached data for a stockpile (filtered totals and top resources by amount).
+     * Mutable and reused across refreshes so rebuilding a view allocates nothing per stockpile.
      */
-    private record StockpileData(int totalAmount, int capacity, List<ResourceAmount> resources) {
+    static final class StockpileData {
+        // Most resources any zoom level shows
+        static final int TOP_K = 5;
+
+        final RESOURCE[] topResources = new RESOURCE[TOP_K]; // Descending by amount
+        final int[] topAmounts = new int[TOP_K];
+        final int[] topCapacities = new int[TOP_K];
+        int topCount = 0;
+        int totalAmount = 0;
+        int capacity = 0;
+        int stamp = 0;
 
         double fillRatio() {
-            return capacity > 0 ? (double) totalAmount / capacity : 0;
+            return capacity > 0 ? Math.min(1.0, (double) totalAmount / capacity) : 0;
+        }
+
+        /**
+         * Insert into the top-K if the amount is large enough
+         */
+        void offer(int resourceIndex, int amount, int resourceCapacity) {
+            if (topCount == TOP_K && amount <= topAmounts[TOP_K - 1]) return;
+
+            int pos = Math.min(topCount, TOP_K - 1);
+            while (pos > 0 && topAmounts[pos - 1] < amount) {
+                topAmounts[pos] = topAmounts[pos - 1];
+                topCapacities[pos] = topCapacities[pos - 1];
+                topResources[pos] = topResources[pos - 1];
+                pos--;
+            }
+            topAmounts[pos] = amount;
+            topCapacities[pos] = resourceCapacity;
+            topResources[pos] = RESOURCES.ALL().get(resourceIndex);
+            if (topCount < TOP_K) topCount++;
         }
     }
 
     /**
-     * Resource with amount
+     * Filtered stockpile data for one resource filter (the selection, or one hovered resource)
      */
-    private record ResourceAmount(RESOURCE resource, int amount) {
+    private static final class StorageView {
+        // Indexed by room instance index; grown on demand when rooms are built past the current length
+        StockpileData[] byRoom = new StockpileData[0];
+        int size = 0;
+        // Complete views hold every stockpile (empty ones too); hover views only stockpiles with matches
+        final boolean complete;
+        boolean[] mask = new boolean[0];
+        boolean chainState;
+        int stamp = 0;
+
+        StorageView(boolean complete) {
+            this.complete = complete;
+        }
+
+        boolean[] mask(int size) {
+            if (mask.length != size) {
+                mask = new boolean[size];
+            }
+            return mask;
+        }
+
+        StockpileData get(int roomIndex) {
+            return roomIndex >= 0 && roomIndex < byRoom.length ? byRoom[roomIndex] : null;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void ensureCapacity(int length) {
+            if (byRoom.length < length) {
+                byRoom = Arrays.copyOf(byRoom, Math.max(length, byRoom.length * 2));
+            }
+        }
+
+        void put(int roomIndex, StockpileData data) {
+            if (complete || data.totalAmount > 0) {
+                ensureCapacity(roomIndex + 1);
+                if (byRoom[roomIndex] == null) size++;
+                byRoom[roomIndex] = data;
+            } else {
+                remove(roomIndex);
+            }
+        }
+
+        void remove(int roomIndex) {
+            if (roomIndex < 0 || roomIndex >= byRoom.length || byRoom[roomIndex] == null) return;
+            byRoom[roomIndex] = null;
+            size--;
+        }
+
+        void removeUnstamped(int stamp) {
+            for (int i = 0; i < byRoom.length; i++) {
+                if (byRoom[i] != null && byRoom[i].stamp != stamp) {
+                    byRoom[i] = null;
+                    size--;
+                }
+            }
+        }
+
+        void clear() {
+            Arrays.fill(byRoom, null);
+            size = 0;
+        }
+
+        void apply(StockpileResourceIndex.Entry entry, ResourceStorageOverlay overlay) {
+            if (entry.roomIndex >= 0) {
+                StockpileData data = get(entry.roomIndex);
+                if (data == null) {
+                    data = new StockpileData();
+                }
+                overlay.fillStockpileData(data, entry, mask);
+                data.stamp = stamp;
+                put(entry.roomIndex, data);
+            }
+        }
+
+        int totalAmount() {
+            int total = 0;
+            for (StockpileData data : byRoom) {
+                if (data != null) total += data.totalAmount;
+            }
+            return total;
+        }
     }
 }
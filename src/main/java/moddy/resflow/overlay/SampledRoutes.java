@@ -0,0 +1,186 @@
+package moddy.resflow.overlay;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Route polylines reconstructed from the positions haulers were sampled at, one per
+ * (source room, destination room). Haulers walk the real route, so these follow corridors and
+ * doors where component-centre paths cut through buildings, and they cost no pathfinder request.
+ * Each completed trip's samples are placed by their fraction of the trip's length and averaged
+ * into fixed progress bins (older trips fade out, so a re-routed road takes over). The polyline
+ * is the room centres with the filled bins between them, simplified in one streaming pass.
+ * Routes without enough samples yet return null and the caller falls back to the pathfinder.
+ */
+final class SampledRoutes {
+
+    private static final int CAPACITY = 4096;
+    private static final int BINS = 24;
+    // Weight kept by earlier trips when a new one is merged
+    private static final float DECAY = 0.8f;
+    // Real samples needed (over all trips) before a route replaces the pathfinder
+    private static final int MIN_SAMPLES = 6;
+    private static final int MIN_BINS = 3;
+    // Points closer than this (tiles) to the line through their neighbours are dropped
+    private static final double SIMPLIFY_TOLERANCE = 1.5;
+
+    private final Map<Long, Route> routes = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Route> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    /**
+     * Merge a completed trip's samples into its route
+     *
+     * @param trail sampled tiles, interleaved x, y, oldest first
+     * @return true if this trip made the route usable for the first time
+     */
+    boolean addTrip(int sourceRoom, int destRoom, int srcX, int srcY, int dstX, int dstY, int[] trail, double time) {
+        if (trail == null || trail.length < 2 || sourceRoom < 0 || destRoom < 0) return false;
+
+        long key = routeKey(sourceRoom, destRoom);
+        Route route = routes.get(key);
+        // A room index reused by a different room: start over
+        if (route == null || route.srcX != srcX || route.srcY != srcY || route.dstX != dstX || route.dstY != dstY) {
+            route = new Route(srcX, srcY, dstX, dstY);
+            routes.put(key, route);
+        }
+        boolean wasReady = route.isReady();
+
+        // Trip length through the samples, from the source room centre to the destination room centre
+        int points = trail.length / 2;
+        double[] along = new double[points];
+        double total = 0;
+        int px = srcX, py = srcY;
+        for (int i = 0; i < points; i++) {
+            total += Math.hypot(trail[i * 2] - px, trail[i * 2 + 1] - py);
+            along[i] = total;
+            px = trail[i * 2];
+            py = trail[i * 2 + 1];
+        }
+        total += Math.hypot(dstX - px, dstY - py);
+        if (total <= 0) return false;
+
+        route.decay();
+        for (int i = 0; i < points; i++) {
+            int bin = Math.min(BINS - 1, (int) (along[i] / total * BINS));
+            route.sumX[bin] += trail[i * 2];
+            route.sumY[bin] += trail[i * 2 + 1];
+            route.weight[bin] += 1;
+        }
+        route.samples += points;
+        route.lastTrip = time;
+        route.entry = null;
+
+        return !wasReady && route.isReady();
+    }
+
+    /**
+     * Reconstructed path for the route, or null if it has too few samples
+     */
+    FlowPathCache.Entry get(int sourceRoom, int destRoom, int srcX, int srcY, int dstX, int dstY) {
+        Route route = routes.get(routeKey(sourceRoom, destRoom));
+        if (route == null || !route.isReady()) return null;
+        if (route.srcX != srcX || route.srcY != srcY || route.dstX != dstX || route.dstY != dstY) return null;
+
+        if (route.entry == null) {
+            FlowPath path = route.build();
+            route.entry = new FlowPathCache.Entry(path, PathTiles.of(path), route.lastTrip);
+        }
+        return route.entry;
+    }
+
+    int size() {
+        return routes.size();
+    }
+
+    private static long routeKey(int sourceRoom, int destRoom) {
+        return ((long) sourceRoom << 32) | (destRoom & 0xFFFFFFFFL);
+    }
+
+    private static final class Route {
+        final int srcX, srcY, dstX, dstY;
+        final float[] sumX = new float[BINS];
+        final float[] sumY = new float[BINS];
+        final float[] weight = new float[BINS];
+        int samples = 0;
+        double lastTrip = 0;
+        // Built path, dropped whenever a trip is merged
+        FlowPathCache.Entry entry;
+
+        Route(int srcX, int srcY, int dstX, int dstY) {
+            this.srcX = srcX;
+            this.srcY = srcY;
+            this.dstX = dstX;
+            this.dstY = dstY;
+        }
+
+        void decay() {
+            for (int b = 0; b < BINS; b++) {
+                sumX[b] *= DECAY;
+                sumY[b] *= DECAY;
+                weight[b] *= DECAY;
+            }
+        }
+
+        boolean isReady() {
+            if (samples < MIN_SAMPLES) return false;
+            int filled = 0;
+            for (int b = 0; b < BINS; b++) {
+                if (weight[b] > 0) filled++;
+            }
+            return filled >= MIN_BINS;
+        }
+
+        /**
+         * Source centre, bin averages in progress order, destination centre - simplified as the points stream in
+         */
+        FlowPath build() {
+            int[] xs = new int[BINS + 2];
+            int[] ys = new int[BINS + 2];
+            xs[0] = srcX;
+            ys[0] = srcY;
+            int n = 1;
+            // xs[n - 1] is the last kept point; the newest point (pending) is kept once the path bends there
+            int pending = -1;
+
+            for (int b = 0; b <= BINS; b++) {
+                int x, y;
+                if (b == BINS) {
+                    x = dstX;
+                    y = dstY;
+                } else {
+                    if (weight[b] <= 0) continue;
+                    x = Math.round(sumX[b] / weight[b]);
+                    y = Math.round(sumY[b] / weight[b]);
+                }
+                if (pending >= 0) {
+                    if (xs[pending] == x && ys[pending] == y) continue;
+                    // Keep the pending point only if the path bends there
+                    if (distanceToLine(xs[pending], ys[pending], xs[n - 1], ys[n - 1], x, y) > SIMPLIFY_TOLERANCE) {
+                        n++;
+                    }
+                } else if (xs[n - 1] == x && ys[n - 1] == y) {
+                    continue;
+                }
+                xs[n] = x;
+                ys[n] = y;
+                pending = n;
+            }
+            if (pending >= 0) n++;
+
+            return new FlowPath(Arrays.copyOf(xs, n), Arrays.copyOf(ys, n));
+        }
+
+        private static double distanceToLine(int px, int py, int x1, int y1, int x2, int y2) {
+            double dx = x2 - x1;
+            double dy = y2 - y1;
+            double len = Math.hypot(dx, dy);
+            if (len == 0) return Math.hypot(px - x1, py - y1);
+            return Math.abs(dy * (px - x1) - dx * (py - y1)) / len;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package moddy.resflow.overlay;
+
+import init.resources.RESOURCE;
+import init.resources.RESOURCES;
+import settlement.main.SETT;
+import settlement.room.main.Room;
+import settlement.room.main.RoomInstance;
+
+/**
+ * Cheap change-detection checksums used by the overlays to skip cache rebuilds that would
+ * produce identical output (paused game, static stockpiles).
+ * Each method is a single pass over rooms or resources with no allocation; a collision only
+ * means one rebuild is skipped, and callers still force a rebuild after a few skips.
+ */
+final class SettlementFingerprint {
+
+    private SettlementFingerprint() {
+    }
+
+    /**
+     * Room count and which room instance sits at each index (built, removed or replaced rooms change it)
+     */
+    static long rooms() {
+        long h = 17;
+        int count = 0;
+        int max = SETT.ROOMS().map.max();
+        for (int i = 0; i < max; i++) {
+            Room room = SETT.ROOMS().map.getByIndex(i);
+            if (!(room instanceof RoomInstance instance)) continue;
+            h = h * 31 + instance.index();
+            h = h * 31 + System.identityHashCode(instance);
+            count++;
+        }
+        return h * 31 + count;
+    }
+
+    /**
+     * Stockpile totals per resource (stored amount and free space)
+     */
+    static long stockpileTotals() {
+        long h = 17;
+        for (RESOURCE res : RESOURCES.ALL()) {
+            h = h * 31 + (long) SETT.ROOMS().STOCKPILE.tally().amountTotal(res);
+            h = h * 31 + (long) SETT.ROOMS().STOCKPILE.tally().space.total(res);
+        }
+        return h;
+    }
+}
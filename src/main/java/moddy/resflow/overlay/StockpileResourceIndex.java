@@ -0,0 +1,230 @@
+package moddy.resflow.overlay;
+
+import init.resources.RESOURCE;
+import init.resources.RESOURCES;
+import settlement.main.SETT;
+import settlement.room.infra.stockpile.StockpileInstance;
+
+import java.util.Arrays;
+
+/**
+ * Persistent, unfiltered resource contents of every stockpile.
+ * Each stockpile keeps a sparse vector (resource index -> amount, capacity) of the resources it
+ * actually holds or has space reserved for.
+ * Vectors are refreshed round-robin a few stockpiles per frame, so a full sweep of
+ * stockpiles x resources is spread over the refresh interval instead of paid at once.
+ * Filtered views are built from these vectors by the storage overlay, so a filter change
+ * only walks the (short) vectors and never reads the tally again.
+ */
+final class StockpileResourceIndex {
+
+    private Entry[] entries = new Entry[64];
+    private int count = 0;
+    private int cursor = 0;
+    private double sweepProgress = 0.0;
+
+    // Stockpile positions refreshed since the last clearDirty call
+    private int[] dirty = new int[64];
+    private int dirtyCount = 0;
+    private boolean[] isDirty = new boolean[64];
+
+    // Room instance index -> stockpile position currently describing it, -1 if none
+    private int[] positionOfRoom = new int[0];
+
+    /**
+     * Refresh the whole index right now (first build, or after a reset)
+     */
+    void refreshAll() {
+        syncCount();
+        for (int i = 0; i < count; i++) {
+            refreshEntry(i);
+        }
+        cursor = 0;
+        sweepProgress = 0.0;
+    }
+
+    /**
+     * Refresh the next slice of stockpiles so that every stockpile is refreshed once per interval
+     *
+     * @param ds       Time since last call
+     * @param interval Seconds for one full sweep
+     */
+    void refresh(double ds, double interval) {
+        syncCount();
+        if (count == 0) return;
+
+        sweepProgress += count * ds / Math.max(0.01, interval);
+        int budget = Math.max(1, (int) sweepProgress);
+        sweepProgress -= budget;
+        if (sweepProgress < 0) sweepProgress = 0;
+
+        budget = Math.min(budget, count);
+        for (int k = 0; k < budget; k++) {
+            if (cursor >= count) cursor = 0;
+            refreshEntry(cursor++);
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * @return entry for stockpile position i (0 .. size()-1); roomIndex is -1 if that stockpile is gone
+     */
+    Entry get(int i) {
+        return entries[i];
+    }
+
+    /**
+     * @return true if some stockpile position currently describes this room; a stale room index
+     * that is still tracked was only taken over by another position and must not be dropped
+     */
+    boolean isTracked(int roomIndex) {
+        return roomIndex >= 0 && roomIndex < positionOfRoom.length && positionOfRoom[roomIndex] >= 0;
+    }
+
+    /**
+     * Number of stockpile positions refreshed since the last {@link #clearDirty()}
+     */
+    int dirtyCount() {
+        return dirtyCount;
+    }
+
+    /**
+     * k-th refreshed stockpile position (0 .. dirtyCount()-1)
+     */
+    int dirtyAt(int k) {
+        return dirty[k];
+    }
+
+    void clearDirty() {
+        for (int k = 0; k < dirtyCount; k++) {
+            isDirty[dirty[k]] = false;
+        }
+        dirtyCount = 0;
+    }
+
+    private void syncCount() {
+        int total = SETT.ROOMS().STOCKPILE.instancesSize();
+        if (total > entries.length) {
+            int capacity = Math.max(total, entries.length * 2);
+            entries = Arrays.copyOf(entries, capacity);
+            isDirty = Arrays.copyOf(isDirty, capacity);
+        }
+        // Stockpiles removed from the end: forget them
+        for (int i = total; i < count; i++) {
+            if (entries[i] != null) {
+                untrack(entries[i].roomIndex, i);
+                entries[i].clear();
+                markDirty(i);
+            }
+        }
+        // New stockpiles: refresh immediately so they never render as missing
+        int previous = count;
+        count = total;
+        for (int i = previous; i < total; i++) {
+            refreshEntry(i);
+        }
+    }
+
+    private void refreshEntry(int i) {
+        Entry e = entries[i];
+        if (e == null) {
+            e = new Entry();
+            entries[i] = e;
+        }
+
+        StockpileInstance instance = SETT.ROOMS().STOCKPILE.getInstance(i);
+        if (instance == null) {
+            untrack(e.roomIndex, i);
+            e.clear();
+            markDirty(i);
+            return;
+        }
+
+        // Instance list shifted (a stockpile was removed): remember the room this slot used to describe
+        if (e.roomIndex >= 0 && e.roomIndex != instance.index()) {
+            untrack(e.roomIndex, i);
+            e.staleRoomIndex = e.roomIndex;
+        }
+        e.roomIndex = instance.index();
+        track(e.roomIndex, i);
+        e.instance = instance;
+        e.size = 0;
+        e.total = 0;
+        e.capacity = 0;
+        for (RESOURCE res : RESOURCES.ALL()) {
+            int amt = SETT.ROOMS().STOCKPILE.tally().amount.get(res, instance);
+            int space = SETT.ROOMS().STOCKPILE.tally().space.get(res, instance);
+            if (amt > 0 || space > 0) {
+                // Real capacity from the tally (same meaning as space.total() in the resource panel)
+                e.add(res.index(), amt, Math.max(space, amt));
+            }
+        }
+        markDirty(i);
+    }
+
+    private void track(int roomIndex, int position) {
+        if (roomIndex >= positionOfRoom.length) {
+            int old = positionOfRoom.length;
+            positionOfRoom = Arrays.copyOf(positionOfRoom, Math.max(roomIndex + 1, Math.max(64, old * 2)));
+            Arrays.fill(positionOfRoom, old, positionOfRoom.length, -1);
+        }
+        positionOfRoom[roomIndex] = position;
+    }
+
+    private void untrack(int roomIndex, int position) {
+        // Only if this position still owns the room (another position may have taken it over)
+        if (roomIndex >= 0 && roomIndex < positionOfRoom.length && positionOfRoom[roomIndex] == position) {
+            positionOfRoom[roomIndex] = -1;
+        }
+    }
+
+    private void markDirty(int i) {
+        if (isDirty[i]) return;
+        isDirty[i] = true;
+        if (dirtyCount == dirty.length) {
+            dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+        }
+        dirty[dirtyCount++] = i;
+    }
+
+    /**
+     * Sparse resource vector of one stockpile
+     */
+    static final class Entry {
+        int roomIndex = -1;
+        int staleRoomIndex = -1; // Room this slot described before the last refresh, if it changed
+        StockpileInstance instance;
+        int[] resources = new int[8]; // RESOURCE.index()
+        int[] amounts = new int[8];
+        int[] capacities = new int[8];
+        int size = 0;
+        int total = 0;
+        int capacity = 0;
+
+        void add(int resourceIndex, int amount, int resourceCapacity) {
+            if (size == resources.length) {
+                resources = Arrays.copyOf(resources, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+                capacities = Arrays.copyOf(capacities, size * 2);
+            }
+            resources[size] = resourceIndex;
+            amounts[size] = amount;
+            capacities[size] = resourceCapacity;
+            size++;
+            total += amount;
+            capacity += resourceCapacity;
+        }
+
+        void clear() {
+            if (roomIndex >= 0) staleRoomIndex = roomIndex;
+            roomIndex = -1;
+            instance = null;
+            size = 0;
+            total = 0;
+            capacity = 0;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package moddy.resflow.overlay;
+
+import settlement.room.infra.stockpile.StockpileInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups stockpiles into grid-cell districts for far zoom and the strategic map, where one
+ * summary per district replaces hundreds of overlapping per-stockpile draws.
+ * Membership is updated incrementally as the stockpile index reports added or removed stockpiles;
+ * a district's aggregated contents are recomputed by the storage overlay only when one of its
+ * stockpiles was refreshed or the shown filter changed (see {@link District#dirty}).
+ */
+final class StorageDistricts {
+
+    // Grid cell -> district; only touched when a stockpile joins, never per frame
+    private final Map<Long, District> byCell = new HashMap<>();
+    // Stable district list (empty districts are kept for reuse)
+    private final List<District> districts = new ArrayList<>();
+    // Room instance index -> position in districts, -1 if not a tracked stockpile
+    private int[] districtOfRoom = new int[0];
+    private int cellSize = 0;
+
+    /**
+     * Adopt a new grid cell size
+     *
+     * @return true if the size changed and every district was dropped (caller re-adds stockpiles)
+     */
+    boolean syncCellSize(int size) {
+        if (size == cellSize) return false;
+        clear();
+        cellSize = Math.max(1, size);
+        return true;
+    }
+
+    void clear() {
+        byCell.clear();
+        districts.clear();
+        Arrays.fill(districtOfRoom, -1);
+    }
+
+    /**
+     * Forget everything, including the cell size (next syncCellSize call starts over)
+     */
+    void reset() {
+        clear();
+        cellSize = 0;
+    }
+
+    /**
+     * Add a stockpile (or move it if its room index now describes a stockpile in another cell)
+     */
+    void add(StockpileInstance instance) {
+        int room = instance.index();
+        if (room < 0 || cellSize <= 0) return;
+        if (room >= districtOfRoom.length) {
+            int old = districtOfRoom.length;
+            districtOfRoom = Arrays.copyOf(districtOfRoom, Math.max(room + 1, old * 2));
+            Arrays.fill(districtOfRoom, old, districtOfRoom.length, -1);
+        }
+
+        int cellX = instance.body().cX() / cellSize;
+        int cellY = instance.body().cY() / cellSize;
+        int current = districtOfRoom[room];
+        if (current >= 0) {
+            District d = districts.get(current);
+            d.dirty = true;
+            if (d.cellX == cellX && d.cellY == cellY) return;
+            remove(room);
+        }
+
+        long key = ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+        District d = byCell.get(key);
+        if (d == null) {
+            d = new District(districts.size(), cellX, cellY);
+            districts.add(d);
+            byCell.put(key, d);
+        }
+        d.addMember(room);
+        districtOfRoom[room] = d.id;
+    }
+
+    void remove(int room) {
+        if (room < 0 || room >= districtOfRoom.length) return;
+        int current = districtOfRoom[room];
+        if (current < 0) return;
+        District d = districts.get(current);
+        d.removeMember(room);
+        d.dirty = true;
+        districtOfRoom[room] = -1;
+    }
+
+    /**
+     * @return district of the stockpile, or null if it is not tracked
+     */
+    District ofRoom(int room) {
+        if (room < 0 || room >= districtOfRoom.length) return null;
+        int current = districtOfRoom[room];
+        return current >= 0 ? districts.get(current) : null;
+    }
+
+    int size() {
+        return districts.size();
+    }
+
+    District get(int i) {
+        return districts.get(i);
+    }
+
+    /**
+     * The shown view changed as a whole (filter change, hover swap): re-aggregate lazily
+     */
+    void markAllDirty() {
+        for (District d : districts) {
+            d.dirty = true;
+        }
+    }
+
+    /**
+     * Stockpiles of one grid cell and their aggregated contents
+     */
+    static final class District {
+        final int id;
+        final int cellX, cellY;
+        int[] members = new int[4]; // Room instance indices
+        int memberCount = 0;
+        // Aggregated by the storage overlay from the shown view
+        final ResourceStorageOverlay.StockpileData data = new ResourceStorageOverlay.StockpileData();
+        int x1, y1, x2, y2;       // Tile bounds of the member stockpiles
+        int centerX, centerY;     // Amount-weighted centre tile
+        boolean dirty = true;
+        int drawnFrame = -1;      // Last storage overlay draw pass that drew this district
+
+        District(int id, int cellX, int cellY) {
+            this.id = id;
+            this.cellX = cellX;
+            this.cellY = cellY;
+        }
+
+        private void addMember(int room) {
+            if (memberCount == members.length) {
+                members = Arrays.copyOf(members, memberCount * 2);
+            }
+            members[memberCount++] = room;
+            dirty = true;
+        }
+
+        private void removeMember(int room) {
+            for (int i = 0; i < memberCount; i++) {
+                if (members[i] == room) {
+                    members[i] = members[--memberCount];
+                    return;
+                }
+            }
+        }
+    }
+}
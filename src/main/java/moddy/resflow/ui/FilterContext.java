@@ -0,0 +1,179 @@
+package moddy.resflow.ui;
+
+import init.resources.RESOURCE;
+import init.resources.RESOURCES;
+import settlement.main.SETT;
+import settlement.room.main.Room;
+import settlement.room.main.RoomInstance;
+import view.keyboard.KEYS;
+import view.main.VIEW;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of what the overlays should show, computed once per frame from the
+ * resource panel state: visible resources (selection or hovered resource, expanded by chains),
+ * the hovered resource, the primary resource and the Shift room filter.
+ * Overlays and particle spawners consult {@link #current()} instead of re-reading the panel's
+ * concurrent selection set and re-expanding chains per call; change detection is a version compare.
+ */
+public final class FilterContext {
+
+    private static FilterContext current = new FilterContext(0, 0, new long[0], Collections.emptyList(),
+        null, null, null, false, true);
+
+    // Inputs of the current snapshot, to detect changes without rebuilding
+    private static final Set<RESOURCE> lastSelection = new HashSet<>();
+    private static RESOURCE lastHovered = null;
+    private static RESOURCE firstSelected = null;
+    private static boolean lastChains = true;
+    private static RoomInstance lastRoom = null;
+
+    /**
+     * Bumped whenever anything in the snapshot changes
+     */
+    public final int version;
+    /**
+     * Bumped only when the locked selection or the chain toggle changes (not on hover)
+     */
+    public final int selectionVersion;
+    private final long[] bits; // Visible resources by RESOURCE.index()
+    private final List<RESOURCE> resources;
+    public final RESOURCE hovered;
+    public final RESOURCE primary; // Hovered resource, else the first selected one, else null (single-resource views)
+    public final RoomInstance hoveredRoom; // Room under the mouse while Shift is held, else null
+    public final boolean hasSelection;
+    public final boolean showAll; // Nothing selected or hovered: every resource is visible
+
+    private FilterContext(int version, int selectionVersion, long[] bits, List<RESOURCE> resources,
+                          RESOURCE hovered, RESOURCE primary, RoomInstance hoveredRoom,
+                          boolean hasSelection, boolean showAll) {
+        this.version = version;
+        this.selectionVersion = selectionVersion;
+        this.bits = bits;
+        this.resources = resources;
+        this.hovered = hovered;
+        this.primary = primary;
+        this.hoveredRoom = hoveredRoom;
+        this.hasSelection = hasSelection;
+        this.showAll = showAll;
+    }
+
+    public static FilterContext current() {
+        return current;
+    }
+
+    /**
+     * Recompute the snapshot if any panel input changed. Call once per frame, before the overlays update.
+     */
+    public static FilterContext refresh() {
+        RESOURCE hovered = HorizontalResourcePanel.currentlyHoveredResource;
+        boolean chains = HorizontalResourcePanel.showResourceChains;
+        RoomInstance room = hoveredRoom();
+
+        boolean selectionChanged = chains != lastChains
+            || lastSelection.size() != HorizontalResourcePanel.selectedResources.size()
+            || !lastSelection.containsAll(HorizontalResourcePanel.selectedResources);
+        if (!selectionChanged && hovered == lastHovered && room == lastRoom) {
+            return current;
+        }
+
+        if (selectionChanged) {
+            lastSelection.clear();
+            lastSelection.addAll(HorizontalResourcePanel.selectedResources);
+            lastChains = chains;
+            firstSelected = null;
+            for (RESOURCE res : HorizontalResourcePanel.selectedResources) {
+                firstSelected = res;
+                break;
+            }
+        }
+        lastHovered = hovered;
+        lastRoom = room;
+
+        // Same precedence as before: locked selection (+chains), else hovered resource (+chains), else all
+        Set<RESOURCE> visible;
+        boolean hasSelection = !lastSelection.isEmpty();
+        if (hasSelection) {
+            visible = HorizontalResourcePanel.getExpandedResourceChain(new HashSet<>(lastSelection));
+        } else if (hovered != null) {
+            Set<RESOURCE> hoveredSet = new HashSet<>();
+            hoveredSet.add(hovered);
+            visible = HorizontalResourcePanel.getExpandedResourceChain(hoveredSet);
+        } else {
+            visible = null;
+        }
+
+        long[] bits = new long[(RESOURCES.ALL().size() + 63) >> 6];
+        List<RESOURCE> resources = new ArrayList<>();
+        if (visible != null) {
+            for (RESOURCE res : visible) {
+                bits[res.index() >> 6] |= 1L << (res.index() & 63);
+                resources.add(res);
+            }
+        }
+
+        current = new FilterContext(current.version + 1,
+            selectionChanged ? current.selectionVersion + 1 : current.selectionVersion,
+            bits, Collections.unmodifiableList(resources), hovered, hovered != null ? hovered : firstSelected,
+            room, hasSelection, visible == null);
+        return current;
+    }
+
+    private static RoomInstance hoveredRoom() {
+        if (!KEYS.MAIN().UNDO.isPressed()) return null;
+        snake2d.util.datatypes.COORDINATE mouseTile = VIEW.s().getWindow().tile();
+        Room room = SETT.ROOMS().map.get(mouseTile.x(), mouseTile.y());
+        return room instanceof RoomInstance instance ? instance : null;
+    }
+
+    /**
+     * @return true if the resource passes the resource filter
+     */
+    public boolean shows(RESOURCE res) {
+        return res != null && showsIndex(res.index());
+    }
+
+    public boolean showsIndex(int resourceIndex) {
+        if (showAll) return true;
+        int word = resourceIndex >> 6;
+        return word < bits.length && (bits[word] & (1L << (resourceIndex & 63))) != 0;
+    }
+
+    /**
+     * @return true if any resource in the bitset (indexed by RESOURCE.index()) passes the resource filter
+     */
+    public boolean showsAny(long[] resourceBits) {
+        if (showAll) {
+            for (long word : resourceBits) {
+                if (word != 0) return true;
+            }
+            return false;
+        }
+        int n = Math.min(bits.length, resourceBits.length);
+        for (int i = 0; i < n; i++) {
+            if ((bits[i] & resourceBits[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Visible resources (selection or hovered resource, chain-expanded); empty when {@link #showAll}
+     */
+    public List<RESOURCE> resources() {
+        return resources;
+    }
+
+    /**
+     * Fill a mask indexed by RESOURCE.index() with the visible resources
+     */
+    public void fillMask(boolean[] mask) {
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = showsIndex(i);
+        }
+    }
+}
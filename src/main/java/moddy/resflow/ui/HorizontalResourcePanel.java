@@ -45,6 +45,8 @@ public class HorizontalResourcePanel extends GuiSection {
     public static boolean showTrafficHeatmap = false;
     public static boolean showEfficiencyMode = false;
     public static boolean showBottlenecks = true;
+    // Stockpile fill levels for the button meters (refreshed by InstanceScript, read by every button)
+    public static final ResourceMeters meters = new ResourceMeters();
     /**
      * -- SETTER --
      * Set the analyzer reference for resource chain queries
@@ -410,21 +412,17 @@ public class HorizontalResourcePanel extends GuiSection {
 
             @Override
             public void render(SPRITE_RENDERER r, float ds) {
-                // Calculate fill level
-                double amount = SETT.ROOMS().STOCKPILE.tally().amountTotal(res);
-                double capacity = SETT.ROOMS().STOCKPILE.tally().space.total(res);
-                double fillRatio = 0;
-                if (capacity > 0) {
-                    fillRatio = amount / capacity;
-                }
+                // Fill level and meter colour are precomputed by the meter cache
+                double fillRatio = meters.fillRatio(res);
 
                 // Render background meter
-                if (fillRatio > 0.9) {
-                    util.gui.misc.GMeter.render(r, util.gui.misc.GMeter.C_REDPURPLE, fillRatio, body());
-                } else if (capacity > 0) {
-                    util.gui.misc.GMeter.render(r, util.gui.misc.GMeter.C_REDGREEN, fillRatio, body());
-                } else {
-                    util.gui.misc.GMeter.render(r, util.gui.misc.GMeter.C_INACTIVE, fillRatio, body());
+                switch (meters.meterClass(res)) {
+                    case ResourceMeters.METER_NEAR_FULL ->
+                        util.gui.misc.GMeter.render(r, util.gui.misc.GMeter.C_REDPURPLE, fillRatio, body());
+                    case ResourceMeters.METER_NORMAL ->
+                        util.gui.misc.GMeter.render(r, util.gui.misc.GMeter.C_REDGREEN, fillRatio, body());
+                    default ->
+                        util.gui.misc.GMeter.render(r, util.gui.misc.GMeter.C_INACTIVE, fillRatio, body());
                 }
 
                 // Import threshold indicator removed in v71: the per-resource
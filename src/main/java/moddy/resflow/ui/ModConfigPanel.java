@@ -146,6 +146,25 @@ public class ModConfigPanel extends GuiSection {
         };
         glowEnabled.selectedSet(ModConfig.FLOW_PARTICLE_USE_GLOW);
         rows.add(glowEnabled);
+
+        // Particle Budget (0 - 5000, stored in steps of 10)
+        rows.add(createSlider("Particle Budget", new INTE() {
+            public int min() {
+                return 0;
+            }
+
+            public int max() {
+                return 500;
+            }
+
+            public int get() {
+                return ModConfig.FLOW_PARTICLE_BUDGET / 10;
+            }
+
+            public void set(int t) {
+                ModConfig.FLOW_PARTICLE_BUDGET = t * 10;
+            }
+        }));
         rows.add(createSpacer(10));
 
         // ==================== FLOW TRACKER ====================
@@ -283,6 +302,24 @@ public class ModConfigPanel extends GuiSection {
                 return this;
             }
         }, 0.1, 10.0));
+
+        rows.add(createSlider("District Size (tiles)", new INTE() {
+            public int min() {
+                return 8;
+            }
+
+            public int max() {
+                return 256;
+            }
+
+            public int get() {
+                return ModConfig.STORAGE_DISTRICT_SIZE;
+            }
+
+            public void set(int t) {
+                ModConfig.STORAGE_DISTRICT_SIZE = t;
+            }
+        }));
         rows.add(createSpacer(10));
 
         // ==================== UI SETTINGS ====================
@@ -405,11 +442,14 @@ public class ModConfigPanel extends GuiSection {
     private void resetAllToDefaults() {
         // Particle system
         ModConfig.FLOW_PARTICLE_ENABLED = true;
-        ModConfig.FLOW_PARTICLE_BASE_SPEED = 0.5;
-        ModConfig.FLOW_PARTICLE_MAX_SPEED = 2.0;
+        ModConfig.FLOW_PARTICLE_BASE_SPEED = 5.0;
+        ModConfig.FLOW_PARTICLE_MAX_SPEED = 20.0;
         ModConfig.FLOW_PARTICLE_BASE_SIZE = 1.0f;
         ModConfig.FLOW_PARTICLE_MAX_SIZE = 3.0f;
         ModConfig.FLOW_PARTICLE_USE_GLOW = true;
+        ModConfig.FLOW_PARTICLE_BUDGET = 500;
+        ModConfig.FLOW_PARTICLE_MIN_PER_CONNECTION = 2;
+        ModConfig.FLOW_PARTICLE_TARGET_FRAME_MS = 20.0;
 
         // Flow tracker
         ModConfig.FLOW_TRACKER_CACHE_UPDATE_INTERVAL = 2.0;
@@ -417,6 +457,12 @@ public class ModConfigPanel extends GuiSection {
         ModConfig.FLOW_TRACKER_PULSE_SPEED = 1.5;
         ModConfig.FLOW_TRACKER_ARROW_ANIM_SPEED = 2.0;
         ModConfig.FLOW_ICON_INTERVAL = 3;
+        ModConfig.FLOW_PATH_BUDGET_US = 1000;
+        ModConfig.FLOW_TRUNK_BUNDLING = true;
+        ModConfig.FLOW_SAMPLED_PATHS = true;
+        ModConfig.FLOW_LOD_MID_LIMIT = 200;
+        ModConfig.FLOW_LOD_FAR_LIMIT = 50;
+        ModConfig.FLOW_MAX_TRACKED_FLOWS = 20000;
 
         // Analyzer & Data
         ModConfig.FLOW_ANALYZER_UPDATE_INTERVAL = 5.0;
@@ -424,6 +470,7 @@ public class ModConfigPanel extends GuiSection {
 
         // Storage overlay
         ModConfig.STORAGE_OVERLAY_CACHE_UPDATE_INTERVAL = 1.0;
+        ModConfig.STORAGE_DISTRICT_SIZE = 32;
 
         // UI settings
         ModConfig.STATUS_MESSAGE_DURATION = 3.0;
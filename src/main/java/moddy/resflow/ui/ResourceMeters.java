@@ -0,0 +1,71 @@
+package moddy.resflow.ui;
+
+import init.resources.RESOURCE;
+import init.resources.RESOURCES;
+import moddy.resflow.ModConfig;
+import settlement.main.SETT;
+
+/**
+ * Per-resource stockpile fill ratios for the resource panel meters.
+ * Refreshed at the storage overlay cadence instead of every button reading the stockpile tally
+ * every frame; the meter colour class is resolved at refresh time, so drawing a button is pure rendering.
+ */
+public final class ResourceMeters {
+
+    public static final byte METER_INACTIVE = 0;  // No storage space for the resource
+    public static final byte METER_NORMAL = 1;
+    public static final byte METER_NEAR_FULL = 2; // Above 90%
+
+    private double[] fillRatio = new double[0];
+    private byte[] meterClass = new byte[0];
+    private double timeSinceRefresh = 0.0;
+    private boolean refreshed = false;
+
+    /**
+     * Refresh once per STORAGE_OVERLAY_CACHE_UPDATE_INTERVAL (immediately on first call)
+     */
+    public void update(double ds) {
+        timeSinceRefresh += ds;
+        if (!refreshed || timeSinceRefresh >= ModConfig.STORAGE_OVERLAY_CACHE_UPDATE_INTERVAL) {
+            refresh();
+            timeSinceRefresh = 0.0;
+        }
+    }
+
+    public void refresh() {
+        int n = RESOURCES.ALL().size();
+        if (fillRatio.length != n) {
+            fillRatio = new double[n];
+            meterClass = new byte[n];
+        }
+        try {
+            for (RESOURCE res : RESOURCES.ALL()) {
+                double amount = SETT.ROOMS().STOCKPILE.tally().amountTotal(res);
+                double capacity = SETT.ROOMS().STOCKPILE.tally().space.total(res);
+                double ratio = capacity > 0 ? amount / capacity : 0;
+                fillRatio[res.index()] = ratio;
+                if (ratio > 0.9) {
+                    meterClass[res.index()] = METER_NEAR_FULL;
+                } else if (capacity > 0) {
+                    meterClass[res.index()] = METER_NORMAL;
+                } else {
+                    meterClass[res.index()] = METER_INACTIVE;
+                }
+            }
+            refreshed = true;
+        } catch (Exception e) {
+            snake2d.LOG.err("ResourceMeters: Error refreshing fill levels: " + e.getMessage());
+        }
+    }
+
+    public double fillRatio(RESOURCE res) {
+        return res.index() < fillRatio.length ? fillRatio[res.index()] : 0;
+    }
+
+    /**
+     * @return one of {@link #METER_INACTIVE}, {@link #METER_NORMAL}, {@link #METER_NEAR_FULL}
+     */
+    public byte meterClass(RESOURCE res) {
+        return res.index() < meterClass.length ? meterClass[res.index()] : METER_INACTIVE;
+    }
+}